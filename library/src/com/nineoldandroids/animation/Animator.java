@@ -239,6 +239,75 @@ public abstract class Animator implements Cloneable {
     public void setTarget(Object target) {
     }
 
+    /**
+     * Value returned by {@link #getTotalDuration()} for an animation that never ends on its
+     * own, such as one with an infinite repeat count.
+     */
+    static final long DURATION_INFINITE = -1;
+
+    /*
+     * The methods below let an AnimatorSet drive its children from a single timeline instead
+     * of starting each one separately. ValueAnimator and AnimatorSet override them to be
+     * pulsed by the set; any other Animator subclass keeps its own timing, so it is simply
+     * started at its offset and assumed to finish after its start delay and duration.
+     */
+
+    /**
+     * Returns the length of this animation from the moment it is started until it ends,
+     * including any start delay and repetitions, or {@link #DURATION_INFINITE}.
+     */
+    long getTotalDuration() {
+        long duration = getDuration();
+        return getStartDelay() + (duration < 0 ? 0 : duration);
+    }
+
+    /**
+     * Called by an AnimatorSet when this animation's offset on the set's timeline is reached,
+     * or its end offset when the set is playing backwards.
+     *
+     * @param inReverse Whether the set is playing backwards.
+     */
+    void startFromTimeline(boolean inReverse) {
+        start();
+    }
+
+    /**
+     * Called by an AnimatorSet on every frame once this animation has been started from the
+     * timeline.
+     *
+     * @param playTime The time, in milliseconds, since this animation's offset on the timeline,
+     * including its own start delay.
+     * @param inReverse Whether the set is playing backwards, in which case the play time
+     * decreases from frame to frame and the animation ends when it reaches zero.
+     * @return true if the animation has ended.
+     */
+    boolean animateFromTimeline(long playTime, boolean inReverse) {
+        if (inReverse) {
+            return playTime <= 0;
+        }
+        long totalDuration = getTotalDuration();
+        return totalDuration != DURATION_INFINITE && playTime >= totalDuration;
+    }
+
+    /**
+     * Called by an AnimatorSet that is being seeked, to set this animation's values to what
+     * they would be at the given play time, without sending any events. Animations that are
+     * not driven by the timeline cannot be seeked and ignore this call.
+     *
+     * @param playTime The time, in milliseconds, since this animation's offset on the timeline,
+     * including its own start delay.
+     */
+    void seekFromTimeline(long playTime) {
+    }
+
+    /**
+     * Called by an AnimatorSet that is being ended, to move this animation straight to its end
+     * values.
+     */
+    void endFromTimeline() {
+        end();
+    }
+
     /**
      * <p>An animation listener receives notifications from an animation.
      * Notifications indicate animation related events, such as the end or the
@@ -16,10 +16,15 @@
 package com.nineoldandroids.animation;
 
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
 import android.content.res.Resources.NotFoundException;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
 import android.util.AttributeSet;
 import android.util.TypedValue;
 import android.util.Xml;
@@ -28,7 +33,11 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * This class is used to instantiate animator XML files into Animator objects.
@@ -84,7 +93,61 @@ public class AnimatorInflater {
     //private static final int VALUE_TYPE_CUSTOM      = 5;
 
     /**
-     * Loads an {@link Animator} object from a resource
+     * The most recently loaded animators, kept unstarted as templates to hand out clones of,
+     * so that loading the same resource again, such as once for every row of a list, does not
+     * parse its XML again. The values of an animator can depend on the configuration, through
+     * dimensions and resource qualifiers, so the cache only holds animators loaded from one
+     * Resources in one configuration, and is emptied when either changes.
+     */
+    private static final int MAX_CACHED_ANIMATORS = 32;
+    private static final LinkedHashMap<Integer, Animator> sCache =
+            new LinkedHashMap<Integer, Animator>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Animator> eldest) {
+            return size() > MAX_CACHED_ANIMATORS;
+        }
+    };
+    private static WeakReference<Resources> sCacheResources;
+    private static Configuration sCacheConfiguration;
+    private static int sCacheGeneration;
+
+    /**
+     * The listeners waiting for each resource being loaded by loadAnimatorAsync(), and the
+     * handlers of the thread that loads them and of the main thread that they are called on.
+     */
+    private static final HashMap<Integer, ArrayList<AnimatorLoadedListener>> sPendingLoads =
+            new HashMap<Integer, ArrayList<AnimatorLoadedListener>>();
+    private static Handler sLoaderHandler;
+    private static Handler sMainHandler;
+
+    /**
+     * A callback for
+     * {@link AnimatorInflater#loadAnimatorAsync(Context, int, AnimatorLoadedListener)}.
+     */
+    public static interface AnimatorLoadedListener {
+        /**
+         * Notifies that an animator has been loaded. This is called on the main thread.
+         *
+         * @param id The resource id of the animation.
+         * @param animator A new animator loaded from the resource.
+         */
+        void onAnimatorLoaded(int id, Animator animator);
+
+        /**
+         * Notifies that an animator could not be loaded, with the exception that
+         * {@link AnimatorInflater#loadAnimator(Context, int)} would have thrown. This is called
+         * on the main thread, instead of {@link #onAnimatorLoaded(int, Animator)}.
+         *
+         * @param id The resource id of the animation.
+         * @param error Why the animation could not be loaded.
+         */
+        void onAnimatorLoadFailed(int id, NotFoundException error);
+    }
+
+    /**
+     * Loads an {@link Animator} object from a resource. Each call returns a new animator, but
+     * the resource is only parsed the first time; the most recently loaded animators are kept
+     * and copied for later calls, as long as the configuration does not change.
      *
      * @param context Application context used to access resources
      * @param id The resource id of the animation to load
@@ -94,6 +157,169 @@ public class AnimatorInflater {
     public static Animator loadAnimator(Context context, int id)
             throws NotFoundException {
 
+        Animator template = loadTemplate(context, id);
+        return template != null ? template.clone() : null;
+    }
+
+    /**
+     * Loads animator resources ahead of time, such as while an activity is being created, so
+     * that the first {@link #loadAnimator(Context, int)} of each of them, which is often made
+     * in the middle of a user interaction, only has to copy the animator rather than parse it.
+     * Only the most recently loaded animators are kept, so this is meant for the few that are
+     * needed right after.
+     *
+     * @param context Application context used to access resources
+     * @param ids The resource ids of the animations to load
+     * @throws android.content.res.Resources.NotFoundException when an animation cannot be loaded
+     */
+    public static void preloadAnimators(Context context, int... ids) throws NotFoundException {
+        for (int id : ids) {
+            loadTemplate(context, id);
+        }
+    }
+
+    /**
+     * Loads an {@link Animator} object from a resource on a background thread, so that parsing
+     * the resource does not hold up the main thread, and hands it to <code>listener</code> on
+     * the main thread. Requests for a resource that is still being loaded share its loading,
+     * and each of their listeners gets an animator of its own. A resource that has already
+     * been loaded is not loaded again, as with {@link #loadAnimator(Context, int)}.
+     *
+     * <p>If the animation cannot be loaded, the
+     * {@link android.content.res.Resources.NotFoundException} that loadAnimator() would have
+     * thrown is handed to {@link AnimatorLoadedListener#onAnimatorLoadFailed(int,
+     * NotFoundException)} instead; nothing is thrown on the main thread.</p>
+     *
+     * @param context Application context used to access resources
+     * @param id The resource id of the animation to load
+     * @param listener The listener to hand the animator to
+     */
+    public static void loadAnimatorAsync(final Context context, final int id,
+            AnimatorLoadedListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        final Handler loaderHandler;
+        synchronized (sPendingLoads) {
+            ArrayList<AnimatorLoadedListener> listeners = sPendingLoads.get(id);
+            if (listeners != null) {
+                listeners.add(listener);
+                return;
+            }
+            listeners = new ArrayList<AnimatorLoadedListener>(1);
+            listeners.add(listener);
+            sPendingLoads.put(id, listeners);
+            if (sLoaderHandler == null) {
+                HandlerThread thread =
+                        new HandlerThread("AnimatorInflater", Process.THREAD_PRIORITY_BACKGROUND);
+                thread.start();
+                sLoaderHandler = new Handler(thread.getLooper());
+                sMainHandler = new Handler(Looper.getMainLooper());
+            }
+            loaderHandler = sLoaderHandler;
+        }
+        loaderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Animator template = null;
+                NotFoundException error = null;
+                try {
+                    template = loadTemplate(context, id);
+                } catch (NotFoundException e) {
+                    error = e;
+                } catch (RuntimeException e) {
+                    // Anything else would kill the loader thread and strand the listeners
+                    error = new NotFoundException("Can't load animation resource ID #0x" +
+                            Integer.toHexString(id));
+                    error.initCause(e);
+                }
+                deliverAnimator(id, template, error);
+            }
+        });
+    }
+
+    private static void deliverAnimator(final int id, final Animator template,
+            final NotFoundException error) {
+        sMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final ArrayList<AnimatorLoadedListener> listeners;
+                synchronized (sPendingLoads) {
+                    listeners = sPendingLoads.remove(id);
+                }
+                int numListeners = listeners.size();
+                for (int i = 0; i < numListeners; ++i) {
+                    if (error != null) {
+                        listeners.get(i).onAnimatorLoadFailed(id, error);
+                    } else {
+                        listeners.get(i).onAnimatorLoaded(id,
+                                template != null ? template.clone() : null);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the animator kept for the given resource, inflating and keeping it first if
+     * need be. The animator returned must not be modified or handed out.
+     */
+    private static Animator loadTemplate(Context context, int id) throws NotFoundException {
+        final Resources resources = context.getResources();
+        final int generation;
+        synchronized (sCache) {
+            Animator template = getCachedAnimator(resources, id);
+            if (template != null) {
+                return template;
+            }
+            generation = sCacheGeneration;
+        }
+        Animator anim = inflateAnimator(context, id);
+        synchronized (sCache) {
+            // Unless the cache has been emptied while inflating, as the animator might then
+            // have been loaded in an older configuration
+            if (anim != null && generation == sCacheGeneration) {
+                sCache.put(id, anim);
+            }
+        }
+        return anim;
+    }
+
+    /**
+     * Drops all the animators kept by {@link #loadAnimator(Context, int)} and
+     * {@link #preloadAnimators(Context, int...)}, such as when memory is low; they are loaded
+     * again the next time they are needed.
+     */
+    public static void clearCache() {
+        synchronized (sCache) {
+            sCache.clear();
+            ++sCacheGeneration;
+            sCacheResources = null;
+            sCacheConfiguration = null;
+        }
+    }
+
+    /**
+     * Returns the cached template for the given resource, emptying the cache first if it
+     * holds animators loaded from other resources or in another configuration. Must be called
+     * with the lock on sCache held.
+     */
+    private static Animator getCachedAnimator(Resources resources, int id) {
+        Configuration configuration = resources.getConfiguration();
+        if (sCacheResources == null || sCacheResources.get() != resources
+                || !configuration.equals(sCacheConfiguration)) {
+            sCache.clear();
+            ++sCacheGeneration;
+            sCacheResources = new WeakReference<Resources>(resources);
+            sCacheConfiguration = new Configuration(configuration);
+            return null;
+        }
+        return sCache.get(id);
+    }
+
+    private static Animator inflateAnimator(Context context, int id)
+            throws NotFoundException {
+
         XmlResourceParser parser = null;
         try {
             parser = context.getResources().getAnimation(id);
@@ -17,8 +17,10 @@
 package com.nineoldandroids.animation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
 
 import android.view.animation.Interpolator;
@@ -51,19 +53,13 @@ public final class AnimatorSet extends Animator {
      * to clone() to make deep copies of them.
      */
 
-    /**
-     * Tracks animations currently being played, so that we know what to
-     * cancel or end when cancel() or end() is called on this AnimatorSet
-     */
-    private ArrayList<Animator> mPlayingSet = new ArrayList<Animator>();
-
     /**
      * Contains all nodes, mapped to their respective Animators. When new
      * dependency information is added for an Animator, we want to add it
      * to a single node representing that Animator, not create a new Node
      * if one already exists.
      */
-    private HashMap<Animator, Node> mNodeMap = new HashMap<Animator, Node>();
+    private IdentityHashMap<Animator, Node> mNodeMap = new IdentityHashMap<Animator, Node>();
 
     /**
      * Set of all nodes created for this AnimatorSet. This list is used upon
@@ -86,7 +82,12 @@ public final class AnimatorSet extends Animator {
      */
     private boolean mNeedsSort = true;
 
-    private AnimatorSetListener mSetListener = null;
+    /**
+     * Flag indicating whether the timeline must be laid out again before playing, because the
+     * nodes were sorted again. The timeline is also laid out again when the total duration of
+     * a child changes.
+     */
+    private boolean mNeedsLayout = true;
 
     /**
      * Flag indicating that the AnimatorSet has been manually
@@ -106,9 +107,77 @@ public final class AnimatorSet extends Animator {
     // The amount of time in ms to delay starting the animation after start() is called
     private long mStartDelay = 0;
 
-    // Animator used for a nonzero startDelay
-    private ValueAnimator mDelayAnim = null;
+    /**
+     * The clock that drives all of the child animations of a top-level AnimatorSet, in place of
+     * starting each child separately. An AnimatorSet nested inside another one is pulsed by its
+     * parent's clock and never starts its own.
+     */
+    private Clock mClock = null;
+
+    /**
+     * The length of the timeline laid out by layoutTimeline(), not counting the start delay of
+     * the AnimatorSet, or DURATION_INFINITE if some child never ends.
+     */
+    private long mTimelineDuration = 0;
+
+    /**
+     * The sorted nodes, reordered by the time at which they start on the timeline. Nodes that
+     * start at the same time keep their sorted order, so a node is never started before a node
+     * it depends on. Nodes that never start come last.
+     */
+    private Node[] mPlayOrder = new Node[0];
+
+    // Index in mPlayOrder of the next node to be started in the current run
+    private int mNextNodeIndex = 0;
+
+    /**
+     * The nodes that have been started and have not yet ended, of which there are
+     * mNumActiveNodes. Frames only visit these, so the cost of a frame depends on the number of
+     * animations playing rather than on the size of the set.
+     */
+    private Node[] mActiveNodes = new Node[0];
+    private int mNumActiveNodes = 0;
+
+    // The number of child animations that have ended in the current run
+    private int mNumDoneNodes = 0;
+
+    /**
+     * Incremented whenever a run of the timeline is started or stopped, so that a frame can
+     * tell whether a listener restarted, canceled or ended this AnimatorSet under it.
+     */
+    private int mGeneration = 0;
+
+    /**
+     * Set when the timeline plays through to its end, as opposed to the clock being stopped by
+     * cancel() or end(), which notify listeners themselves.
+     */
+    private boolean mTimelineDone = false;
+
+    /**
+     * Whether the current run of the timeline plays backwards, from the end of the timeline
+     * towards its start.
+     */
+    private boolean mReversing = false;
+
+    /**
+     * The sorted nodes, reordered by the time at which they end on the timeline, latest first.
+     * This is the order in which nodes are started when the timeline plays backwards. It is
+     * built the first time the set is reversed after the timeline has been laid out.
+     */
+    private Node[] mReverseOrder = null;
+
+    /**
+     * The point of the timeline that the clock of a top-level AnimatorSet counts from, either
+     * forwards or backwards, and the time the clock waits before it starts counting.
+     */
+    private long mPlayBase = 0;
+    private long mPlayDelay = 0;
+
+    // The point of the timeline reached by the last frame of the current run
+    private long mCurrentTime = 0;
 
+    // The point of the timeline set by setCurrentPlayTime() before the set was started, or -1
+    private long mSeekTime = -1;
 
     // How long the child animations should last in ms. The default value is negative, which
     // simply means that there is no duration set on the AnimatorSet. When a real duration is
@@ -124,6 +193,7 @@ public final class AnimatorSet extends Animator {
     public void playTogether(Animator... items) {
         if (items != null) {
             mNeedsSort = true;
+            mNodes.ensureCapacity(mNodes.size() + items.length);
             Builder builder = play(items[0]);
             for (int i = 1; i < items.length; ++i) {
                 builder.with(items[i]);
@@ -139,6 +209,7 @@ public final class AnimatorSet extends Animator {
     public void playTogether(Collection<Animator> items) {
         if (items != null && items.size() > 0) {
             mNeedsSort = true;
+            mNodes.ensureCapacity(mNodes.size() + items.size());
             Builder builder = null;
             for (Animator anim : items) {
                 if (builder == null) {
@@ -188,6 +259,51 @@ public final class AnimatorSet extends Animator {
         }
     }
 
+    /**
+     * Sets up this AnimatorSet to play each of the supplied animations a fixed amount of time
+     * after the previous one starts. The offsets are laid out on the timeline of the set like
+     * any other dependency, so a cascade of any length is driven by the single clock of the
+     * set rather than by a delayed animation per item.
+     *
+     * @param step The time, in milliseconds, between the starts of consecutive animations.
+     * @param items The animations that will be started one after another.
+     */
+    public void playStaggered(long step, Animator... items) {
+        if (step < 0) {
+            throw new IllegalArgumentException("step must be a value of zero or greater");
+        }
+        if (items != null && items.length > 0) {
+            mNeedsSort = true;
+            mNodes.ensureCapacity(mNodes.size() + items.length);
+            Builder builder = play(items[0]);
+            for (int i = 1; i < items.length; ++i) {
+                builder.with(items[i], step * i);
+            }
+        }
+    }
+
+    /**
+     * Sets up this AnimatorSet to play each of the supplied animations a fixed amount of time
+     * after the previous one starts.
+     *
+     * @param step The time, in milliseconds, between the starts of consecutive animations.
+     * @param items The animations that will be started one after another.
+     */
+    public void playStaggered(long step, List<Animator> items) {
+        if (step < 0) {
+            throw new IllegalArgumentException("step must be a value of zero or greater");
+        }
+        if (items != null && items.size() > 0) {
+            mNeedsSort = true;
+            int numItems = items.size();
+            mNodes.ensureCapacity(mNodes.size() + numItems);
+            Builder builder = play(items.get(0));
+            for (int i = 1; i < numItems; ++i) {
+                builder.with(items.get(i), step * i);
+            }
+        }
+    }
+
     /**
      * Returns the current list of child Animator objects controlled by this
      * AnimatorSet. This is a copy of the internal list; modifications to the returned list
@@ -197,13 +313,23 @@ public final class AnimatorSet extends Animator {
      * @return ArrayList<Animator> The list of child animations of this AnimatorSet.
      */
     public ArrayList<Animator> getChildAnimations() {
-        ArrayList<Animator> childList = new ArrayList<Animator>();
-        for (Node node : mNodes) {
-            childList.add(node.animation);
+        int numNodes = mNodes.size();
+        ArrayList<Animator> childList = new ArrayList<Animator>(numNodes);
+        for (int i = 0; i < numNodes; ++i) {
+            childList.add(mNodes.get(i).animation);
         }
         return childList;
     }
 
+    /**
+     * Returns the number of child animations of this AnimatorSet, without copying them.
+     *
+     * @return The number of child animations.
+     */
+    public int getChildAnimationCount() {
+        return mNodes.size();
+    }
+
     /**
      * Sets the target object for all current {@link #getChildAnimations() child animations}
      * of this AnimatorSet that take targets ({@link ObjectAnimator} and
@@ -290,12 +416,19 @@ public final class AnimatorSet extends Animator {
                     listener.onAnimationCancel(this);
                 }
             }
-            if (mDelayAnim != null && mDelayAnim.isRunning()) {
-                // If we're currently in the startDelay period, just cancel that animator and
-                // send out the end event to all listeners
-                mDelayAnim.cancel();
-            } else  if (mSortedNodes.size() > 0) {
-                for (Node node : mSortedNodes) {
+            if (mClock != null) {
+                mClock.cancel();
+            }
+            ++mGeneration;
+            // Only the animations that are playing need to be canceled
+            final Node[] activeNodes = mActiveNodes;
+            int numActiveNodes = mNumActiveNodes;
+            mNumActiveNodes = 0;
+            for (int i = 0; i < numActiveNodes; ++i) {
+                Node node = activeNodes[i];
+                activeNodes[i] = null;
+                if (node != null && !node.done) {
+                    node.done = true;
                     node.animation.cancel();
                 }
             }
@@ -318,22 +451,31 @@ public final class AnimatorSet extends Animator {
     public void end() {
         mTerminated = true;
         if (isStarted()) {
-            if (mSortedNodes.size() != mNodes.size()) {
-                // hasn't been started yet - sort the nodes now, then end them
-                sortNodes();
-                for (Node node : mSortedNodes) {
-                    if (mSetListener == null) {
-                        mSetListener = new AnimatorSetListener(this);
-                    }
-                    node.animation.addListener(mSetListener);
-                }
-            }
-            if (mDelayAnim != null) {
-                mDelayAnim.cancel();
+            // nodes may have been added since the set was started - bring the timeline up to
+            // date, then end them
+            updateTimeline();
+            if (mClock != null) {
+                mClock.cancel();
             }
-            if (mSortedNodes.size() > 0) {
-                for (Node node : mSortedNodes) {
-                    node.animation.end();
+            ++mGeneration;
+            Arrays.fill(mActiveNodes, 0, mNumActiveNodes, null);
+            mNumActiveNodes = 0;
+            // End the children in the order they are started in, so that the animations
+            // played last of the same property leave their values in place. Playing backwards,
+            // that leaves every child at its start.
+            final Node[] startOrder = getStartOrder();
+            int numNodes = startOrder.length;
+            for (int i = 0; i < numNodes; ++i) {
+                Node node = startOrder[i];
+                if (!node.done) {
+                    node.done = true;
+                    if (!mReversing) {
+                        node.animation.endFromTimeline();
+                    } else if (node.started) {
+                        node.animation.animateFromTimeline(0, true);
+                    } else {
+                        node.animation.seekFromTimeline(0);
+                    }
                 }
             }
             if (mListeners != null) {
@@ -348,18 +490,13 @@ public final class AnimatorSet extends Animator {
     }
 
     /**
-     * Returns true if any of the child animations of this AnimatorSet have been started and have
-     * not yet ended.
+     * Returns true if this AnimatorSet has been started and has not yet ended, including while
+     * it waits for its start delay or between children that are played one after another.
      * @return Whether this AnimatorSet has been started and has not yet ended.
      */
     @Override
     public boolean isRunning() {
-        for (Node node : mNodes) {
-            if (node.animation.isRunning()) {
-                return true;
-            }
-        }
-        return false;
+        return mStarted;
     }
 
     @Override
@@ -444,108 +581,567 @@ public final class AnimatorSet extends Animator {
      * <p>Starting this <code>AnimatorSet</code> will, in turn, start the animations for which
      * it is responsible. The details of when exactly those animations are started depends on
      * the dependency relationships that have been set up between the animations.
+     *
+     * <p>The dependencies are resolved up front into a timeline holding the offset at which
+     * each child starts and ends, and every child is then pulsed from a single clock, so
+     * animations set to play one after the other follow each other on the same frame.</p>
      */
-    @SuppressWarnings("unchecked")
     @Override
     public void start() {
+        startTimeline(false);
+    }
+
+    /**
+     * Plays the AnimatorSet in reverse. If it is already running, it turns around and plays
+     * backwards from the point it has reached: the children that are playing turn around with
+     * it, and those that have already played are played again backwards, without anything
+     * being allocated or laid out again. Otherwise the set plays backwards from the end of its
+     * timeline, or from the point given to {@link #setCurrentPlayTime(long)}. The start delay
+     * of the set is not played in reverse.
+     *
+     * <p>Only {@link ValueAnimator}, {@link ObjectAnimator} and AnimatorSet children are played
+     * backwards; any other child is started as usual when its end offset is reached. Reversing
+     * is only set for the current run; a later call to {@link #start()} plays forwards. Sets
+     * that never end cannot be reversed, see {@link #canReverse()}.</p>
+     */
+    public void reverse() {
+        if (!canReverse()) {
+            return;
+        }
+        if (!mStarted) {
+            startTimeline(true);
+        } else if (mClock != null && mClock.isStarted()) {
+            ++mGeneration;
+            mReversing = !mReversing;
+            skipTimelineTo(mCurrentTime);
+            restartClock(mCurrentTime);
+        }
+    }
+
+    /**
+     * Returns whether this AnimatorSet can be played in reverse, which is the case unless one
+     * of its children never ends.
+     *
+     * @return Whether {@link #reverse()} has any effect.
+     */
+    public boolean canReverse() {
+        if (!mStarted) {
+            updateTimeline();
+        }
+        return mTimelineDuration != DURATION_INFINITE;
+    }
+
+    /**
+     * Sets the position of the animation to the specified point in time, not counting the
+     * start delay of the set. This time should be between 0 and the total duration of the
+     * animation. If the set has not been started, the values of its children are set to what
+     * they would be at that point, without sending any events, and the next call to
+     * {@link #start()} or {@link #reverse()} plays on from there. If the set is running, it
+     * carries on playing from that point: children that are no longer playing are ended, at
+     * whichever of their ends is closer to the new point, and those that now should be playing
+     * are started.
+     *
+     * <p>Only {@link ValueAnimator}, {@link ObjectAnimator} and AnimatorSet children can be
+     * seeked; any other child keeps its own timing.</p>
+     *
+     * @param playTime The time, in milliseconds, to which the animation is advanced or rewound.
+     */
+    public void setCurrentPlayTime(long playTime) {
+        if (!mStarted) {
+            updateTimeline();
+        }
+        long time = clampTime(playTime);
+        if (!mStarted) {
+            seekTimeline(time);
+            mSeekTime = time;
+        } else if (seekRun(time) && mClock != null && mClock.isStarted()) {
+            restartClock(time);
+        }
+    }
+
+    /**
+     * Gets the current position of the animation in time, not counting the start delay of
+     * the set. A set that is neither started nor seeked returns zero.
+     *
+     * @return The current position in time of the animation.
+     */
+    public long getCurrentPlayTime() {
+        if (mStarted) {
+            return mCurrentTime;
+        }
+        return (mSeekTime >= 0) ? mSeekTime : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void startTimeline(boolean reverse) {
+        if (mClock == null) {
+            mClock = new Clock(this);
+        } else if (mClock.isStarted()) {
+            // Restarting: stop the clock without ending the children
+            mClock.cancel();
+        }
         mTerminated = false;
         mStarted = true;
+        prepareTimeline(reverse);
+        mPlayBase = mCurrentTime;
+        mPlayDelay = reverse ? 0 : mStartDelay;
+        if (mSeekTime >= 0) {
+            mPlayBase = mCurrentTime = mSeekTime;
+            mSeekTime = -1;
+            skipTimelineTo(mPlayBase);
+        }
 
-        // First, sort the nodes (if necessary). This will ensure that sortedNodes
-        // contains the animation nodes in the correct order.
-        sortNodes();
+        if (mNodes.size() > 0 || mStartDelay > 0) {
+            // The first frame of the timeline is processed synchronously, which starts the
+            // animations at offset 0 and sets their initial values.
+            mClock.start();
+        }
+        if (mListeners != null) {
+            ArrayList<AnimatorListener> tmpListeners =
+                    (ArrayList<AnimatorListener>) mListeners.clone();
+            int numListeners = tmpListeners.size();
+            for (int i = 0; i < numListeners; ++i) {
+                tmpListeners.get(i).onAnimationStart(this);
+            }
+        }
+        if (mNodes.size() == 0 && mStartDelay == 0) {
+            // Handle unusual case where empty AnimatorSet is started - should send out
+            // end event immediately since the event will not be sent out at all otherwise
+            mStarted = false;
+            if (mListeners != null) {
+                ArrayList<AnimatorListener> tmpListeners =
+                        (ArrayList<AnimatorListener>) mListeners.clone();
+                int numListeners = tmpListeners.size();
+                for (int i = 0; i < numListeners; ++i) {
+                    tmpListeners.get(i).onAnimationEnd(this);
+                }
+            }
+        }
+    }
 
+    /**
+     * Sorts the nodes if needed, lays out the timeline and resets the per-run state of every
+     * node, ready for the timeline to be played from the start, or from the end in reverse.
+     */
+    private void prepareTimeline(boolean reverse) {
+        updateTimeline();
+        mReversing = reverse;
+        mCurrentTime = reverse ? mTimelineDuration : 0;
+        final Node[] playOrder = mPlayOrder;
+        int numNodes = playOrder.length;
+        for (int i = 0; i < numNodes; ++i) {
+            Node node = playOrder[i];
+            node.started = false;
+            node.done = false;
+        }
+        Arrays.fill(mActiveNodes, 0, mNumActiveNodes, null);
+        mNumActiveNodes = 0;
+        mNextNodeIndex = 0;
+        mNumDoneNodes = 0;
+        mTimelineDone = false;
+        ++mGeneration;
+    }
+
+    /**
+     * Brings the sorted nodes and the timeline up to date. Both are kept from one run to the
+     * next; the timeline is only laid out again if the nodes were sorted again or if one of
+     * the children now has a different total duration.
+     */
+    private void updateTimeline() {
+        sortNodes();
+        boolean needsLayout = mNeedsLayout;
         int numSortedNodes = mSortedNodes.size();
         for (int i = 0; i < numSortedNodes; ++i) {
             Node node = mSortedNodes.get(i);
-            // First, clear out the old listeners
-            ArrayList<AnimatorListener> oldListeners = node.animation.getListeners();
-            if (oldListeners != null && oldListeners.size() > 0) {
-                final ArrayList<AnimatorListener> clonedListeners = new
-                        ArrayList<AnimatorListener>(oldListeners);
-
-                for (AnimatorListener listener : clonedListeners) {
-                    if (listener instanceof DependencyListener ||
-                            listener instanceof AnimatorSetListener) {
-                        node.animation.removeListener(listener);
-                    }
-                }
+            long totalDuration = node.animation.getTotalDuration();
+            if (totalDuration != node.totalDuration) {
+                node.totalDuration = totalDuration;
+                needsLayout = true;
             }
         }
+        if (needsLayout) {
+            layoutTimeline();
+            mNeedsLayout = false;
+        }
+    }
 
-        // nodesToStart holds the list of nodes to be started immediately. We don't want to
-        // start the animations in the loop directly because we first need to set up
-        // dependencies on all of the nodes. For example, we don't want to start an animation
-        // when some other animation also wants to start when the first animation begins.
-        final ArrayList<Node> nodesToStart = new ArrayList<Node>();
+    /**
+     * Computes the offset at which each node starts and ends, relative to the end of the
+     * start delay of this AnimatorSet. Nodes are visited in sorted order, so the nodes that a
+     * node depends on have always been laid out before it. A node that depends on the end of
+     * a never-ending animation never starts.
+     */
+    private void layoutTimeline() {
+        long timelineDuration = 0;
+        int numSortedNodes = mSortedNodes.size();
         for (int i = 0; i < numSortedNodes; ++i) {
             Node node = mSortedNodes.get(i);
-            if (mSetListener == null) {
-                mSetListener = new AnimatorSetListener(this);
-            }
-            if (node.dependencies == null || node.dependencies.size() == 0) {
-                nodesToStart.add(node);
-            } else {
+            long startTime = 0;
+            if (node.dependencies != null) {
                 int numDependencies = node.dependencies.size();
                 for (int j = 0; j < numDependencies; ++j) {
                     Dependency dependency = node.dependencies.get(j);
-                    dependency.node.animation.addListener(
-                            new DependencyListener(this, node, dependency.rule));
+                    long dependencyTime = (dependency.rule == Dependency.WITH) ?
+                            dependency.node.startTime : dependency.node.endTime;
+                    if (dependencyTime == DURATION_INFINITE) {
+                        startTime = DURATION_INFINITE;
+                        break;
+                    }
+                    startTime = Math.max(startTime, dependencyTime + dependency.delay);
                 }
-                node.tmpDependencies = (ArrayList<Dependency>) node.dependencies.clone();
             }
-            node.animation.addListener(mSetListener);
+            node.startTime = startTime;
+            long totalDuration = (startTime == DURATION_INFINITE) ? DURATION_INFINITE :
+                    node.totalDuration;
+            node.endTime = (totalDuration == DURATION_INFINITE) ? DURATION_INFINITE :
+                    startTime + totalDuration;
+            if (node.endTime == DURATION_INFINITE) {
+                timelineDuration = DURATION_INFINITE;
+            } else if (timelineDuration != DURATION_INFINITE) {
+                timelineDuration = Math.max(timelineDuration, node.endTime);
+            }
         }
-        // Now that all dependencies are set up, start the animations that should be started.
-        if (mStartDelay <= 0) {
-            for (Node node : nodesToStart) {
-                node.animation.start();
-                mPlayingSet.add(node.animation);
+        mTimelineDuration = timelineDuration;
+
+        if (mPlayOrder.length != numSortedNodes) {
+            mPlayOrder = new Node[numSortedNodes];
+            mActiveNodes = new Node[numSortedNodes];
+            mNumActiveNodes = 0;
+        }
+        mSortedNodes.toArray(mPlayOrder);
+        // This sort is stable, which keeps nodes that start together in dependency order
+        Arrays.sort(mPlayOrder, sStartTimeComparator);
+        mReverseOrder = null;
+    }
+
+    /**
+     * Returns the order in which nodes are started in the current run.
+     */
+    private Node[] getStartOrder() {
+        if (!mReversing) {
+            return mPlayOrder;
+        }
+        if (mReverseOrder == null) {
+            int numSortedNodes = mSortedNodes.size();
+            Node[] reverseOrder = new Node[numSortedNodes];
+            for (int i = 0; i < numSortedNodes; ++i) {
+                reverseOrder[i] = mSortedNodes.get(numSortedNodes - 1 - i);
             }
-        } else {
-            mDelayAnim = ValueAnimator.ofFloat(0f, 1f);
-            mDelayAnim.setDuration(mStartDelay);
-            mDelayAnim.addListener(new AnimatorListenerAdapter() {
-                boolean canceled = false;
-                public void onAnimationCancel(Animator anim) {
-                    canceled = true;
-                }
-                public void onAnimationEnd(Animator anim) {
-                    if (!canceled) {
-                        int numNodes = nodesToStart.size();
-                        for (int i = 0; i < numNodes; ++i) {
-                            Node node = nodesToStart.get(i);
-                            node.animation.start();
-                            mPlayingSet.add(node.animation);
-                        }
-                    }
-                }
-            });
-            mDelayAnim.start();
+            // Stable again, so nodes that end together are started dependents first
+            Arrays.sort(reverseOrder, sEndTimeComparator);
+            mReverseOrder = reverseOrder;
+        }
+        return mReverseOrder;
+    }
+
+    private static final Comparator<Node> sStartTimeComparator = new Comparator<Node>() {
+        public int compare(Node lhs, Node rhs) {
+            long lhsTime = (lhs.startTime == DURATION_INFINITE) ? Long.MAX_VALUE : lhs.startTime;
+            long rhsTime = (rhs.startTime == DURATION_INFINITE) ? Long.MAX_VALUE : rhs.startTime;
+            return (lhsTime < rhsTime) ? -1 : ((lhsTime == rhsTime) ? 0 : 1);
+        }
+    };
+
+    private static final Comparator<Node> sEndTimeComparator = new Comparator<Node>() {
+        public int compare(Node lhs, Node rhs) {
+            long lhsTime = (lhs.endTime == DURATION_INFINITE) ? Long.MAX_VALUE : lhs.endTime;
+            long rhsTime = (rhs.endTime == DURATION_INFINITE) ? Long.MAX_VALUE : rhs.endTime;
+            return (lhsTime > rhsTime) ? -1 : ((lhsTime == rhsTime) ? 0 : 1);
+        }
+    };
+
+    private long clampTime(long time) {
+        if (time < 0) {
+            return 0;
+        }
+        if (mTimelineDuration != DURATION_INFINITE && time > mTimelineDuration) {
+            return mTimelineDuration;
+        }
+        return time;
+    }
+
+    /**
+     * Lets the clock of a top-level AnimatorSet count from the given point of the timeline,
+     * processing a frame there straight away.
+     */
+    private void restartClock(long time) {
+        mPlayBase = time;
+        mPlayDelay = 0;
+        mClock.setCurrentPlayTime(0);
+    }
+
+    /**
+     * Processes a frame of the clock of a top-level AnimatorSet.
+     *
+     * @param playTime The time, in milliseconds, since the clock was started.
+     * @return true if every child animation has ended.
+     */
+    private boolean animateClock(long playTime) {
+        final long time = playTime - mPlayDelay;
+        if (time < 0) {
+            return false;
         }
+        return animateTimeline(mReversing ? mPlayBase - time : mPlayBase + time);
+    }
+
+    /**
+     * Processes one frame of the timeline, starting the children whose offset has been
+     * reached and pulsing those that are playing.
+     *
+     * @param time The point of the timeline reached, in milliseconds since the end of the
+     * start delay of this AnimatorSet.
+     * @return true if every child animation has ended.
+     */
+    private boolean animateTimeline(long time) {
+        final boolean reversing = mReversing;
+        mCurrentTime = clampTime(time);
+        final int generation = mGeneration;
+        final Node[] activeNodes = mActiveNodes;
+        int numActiveNodes = mNumActiveNodes;
+        int numStillActive = 0;
+
+        // First pulse the animations that are already playing, compacting out those that end
+        for (int i = 0; i < numActiveNodes; ++i) {
+            Node node = activeNodes[i];
+            // Entries past numStillActive that have been visited are left null, which keeps the
+            // array valid for cancel() if a listener calls it during this frame
+            activeNodes[i] = null;
+            activeNodes[numStillActive] = node;
+            boolean done = node.animation.animateFromTimeline(time - node.startTime, reversing);
+            if (mGeneration != generation) {
+                // A listener canceled, ended or restarted this AnimatorSet during the frame
+                return false;
+            }
+            if (done) {
+                activeNodes[numStillActive] = null;
+                node.done = true;
+                ++mNumDoneNodes;
+            } else {
+                ++numStillActive;
+            }
+        }
+        mNumActiveNodes = numStillActive;
+
+        // Then start the animations whose offset has been reached
+        final Node[] startOrder = getStartOrder();
+        int numNodes = startOrder.length;
+        while (mNextNodeIndex < numNodes) {
+            Node node = startOrder[mNextNodeIndex];
+            if (node.started || node.done) {
+                // Playing, or passed over when the set was seeked or reversed
+                ++mNextNodeIndex;
+                continue;
+            }
+            if (reversing ? time > node.endTime :
+                    (node.startTime == DURATION_INFINITE || time < node.startTime)) {
+                break;
+            }
+            ++mNextNodeIndex;
+            node.started = true;
+            activeNodes[mNumActiveNodes++] = node;
+            node.animation.startFromTimeline(reversing);
+            boolean done = (mGeneration == generation) &&
+                    node.animation.animateFromTimeline(time - node.startTime, reversing);
+            if (mGeneration != generation) {
+                return false;
+            }
+            if (done) {
+                activeNodes[--mNumActiveNodes] = null;
+                node.done = true;
+                ++mNumDoneNodes;
+            }
+        }
+
+        if (mNumDoneNodes == numNodes) {
+            mTimelineDone = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the values of every child to what they would be at the given point of the
+     * timeline, without sending any events. Children that start later are put back to their
+     * start values first, the latest first, so that where several children animate the same
+     * property the value of the one that played last before that point wins.
+     */
+    private void seekTimeline(long time) {
+        final Node[] playOrder = mPlayOrder;
+        int numNodes = playOrder.length;
+        for (int i = numNodes - 1; i >= 0; --i) {
+            Node node = playOrder[i];
+            if (node.startTime != DURATION_INFINITE && node.startTime > time) {
+                node.animation.seekFromTimeline(0);
+            }
+        }
+        for (int i = 0; i < numNodes; ++i) {
+            Node node = playOrder[i];
+            if (node.startTime == DURATION_INFINITE || node.startTime > time) {
+                break;
+            }
+            long playTime = time - node.startTime;
+            if (node.endTime != DURATION_INFINITE) {
+                playTime = Math.min(playTime, node.endTime - node.startTime);
+            }
+            node.animation.seekFromTimeline(playTime);
+        }
+    }
+
+    /**
+     * Moves a running timeline to the given point. The children that are playing but do not
+     * overlap that point are ended at whichever of their ends is closer to it, the values of
+     * all the children are set for the new point, and the children that have been passed over
+     * in the direction of play are skipped for the rest of the run.
+     *
+     * @return false if a listener canceled, ended or restarted this AnimatorSet meanwhile.
+     */
+    private boolean seekRun(long time) {
+        final int generation = ++mGeneration;
+        final Node[] activeNodes = mActiveNodes;
+        int numActiveNodes = mNumActiveNodes;
+        int numStillActive = 0;
+        for (int i = 0; i < numActiveNodes; ++i) {
+            Node node = activeNodes[i];
+            activeNodes[i] = null;
+            if (node == null) {
+                continue;
+            }
+            boolean playing = mReversing ?
+                    (node.startTime < time && time <= node.endTime) :
+                    (node.startTime <= time &&
+                            (node.endTime == DURATION_INFINITE || time < node.endTime));
+            if (playing) {
+                activeNodes[numStillActive++] = node;
+                continue;
+            }
+            node.done = true;
+            boolean done = (time <= node.startTime) ?
+                    node.animation.animateFromTimeline(0, true) :
+                    node.animation.animateFromTimeline(node.endTime - node.startTime, false);
+            if (!done && mGeneration == generation) {
+                node.animation.cancel();
+            }
+            if (mGeneration != generation) {
+                return false;
+            }
+        }
+        mNumActiveNodes = numStillActive;
+        seekTimeline(time);
+        if (mGeneration != generation) {
+            return false;
+        }
+        skipTimelineTo(time);
+        mCurrentTime = time;
+        return true;
+    }
+
+    /**
+     * Resets the run state of the nodes that are not playing for the given point of the
+     * timeline: those that lie behind it in the direction of play are marked as done without
+     * being played, and the others are left to be started when the timeline reaches them.
+     */
+    private void skipTimelineTo(long time) {
+        final Node[] playOrder = mPlayOrder;
+        int numNodes = playOrder.length;
+        int numDoneNodes = 0;
+        for (int i = 0; i < numNodes; ++i) {
+            Node node = playOrder[i];
+            if (node.started && !node.done) {
+                continue;
+            }
+            boolean passed = mReversing ?
+                    (node.startTime != DURATION_INFINITE && node.startTime >= time) :
+                    (node.endTime != DURATION_INFINITE && node.endTime <= time);
+            node.started = false;
+            node.done = passed;
+            if (passed) {
+                ++numDoneNodes;
+            }
+        }
+        mNumDoneNodes = numDoneNodes;
+        mNextNodeIndex = 0;
+    }
+
+    /**
+     * Sends out the end event once the timeline has played through.
+     */
+    @SuppressWarnings("unchecked")
+    private void onTimelineEnd() {
+        mTimelineDone = false;
+        final int generation = mGeneration;
         if (mListeners != null) {
             ArrayList<AnimatorListener> tmpListeners =
                     (ArrayList<AnimatorListener>) mListeners.clone();
             int numListeners = tmpListeners.size();
             for (int i = 0; i < numListeners; ++i) {
-                tmpListeners.get(i).onAnimationStart(this);
+                tmpListeners.get(i).onAnimationEnd(this);
             }
         }
-        if (mNodes.size() == 0 && mStartDelay == 0) {
-            // Handle unusual case where empty AnimatorSet is started - should send out
-            // end event immediately since the event will not be sent out at all otherwise
+        // Unless a listener has started the set again, which must leave it started
+        if (mGeneration == generation) {
             mStarted = false;
-            if (mListeners != null) {
-                ArrayList<AnimatorListener> tmpListeners =
-                        (ArrayList<AnimatorListener>) mListeners.clone();
-                int numListeners = tmpListeners.size();
-                for (int i = 0; i < numListeners; ++i) {
-                    tmpListeners.get(i).onAnimationEnd(this);
-                }
+        }
+    }
+
+    @Override
+    long getTotalDuration() {
+        updateTimeline();
+        if (mTimelineDuration == DURATION_INFINITE) {
+            return DURATION_INFINITE;
+        }
+        return mStartDelay + mTimelineDuration;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    void startFromTimeline(boolean inReverse) {
+        mTerminated = false;
+        mStarted = true;
+        mSeekTime = -1;
+        prepareTimeline(inReverse);
+        if (mListeners != null) {
+            ArrayList<AnimatorListener> tmpListeners =
+                    (ArrayList<AnimatorListener>) mListeners.clone();
+            int numListeners = tmpListeners.size();
+            for (int i = 0; i < numListeners; ++i) {
+                tmpListeners.get(i).onAnimationStart(this);
             }
         }
     }
 
+    @Override
+    boolean animateFromTimeline(long playTime, boolean inReverse) {
+        if (!mStarted) {
+            // Canceled or ended directly while being pulsed by the parent set
+            return true;
+        }
+        if (inReverse != mReversing) {
+            // The parent set has been reversed while this one was playing
+            mReversing = inReverse;
+            skipTimelineTo(mCurrentTime);
+        }
+        long time = playTime - mStartDelay;
+        if (time < 0 && !inReverse) {
+            return false;
+        }
+        if (animateTimeline(time)) {
+            onTimelineEnd();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    void seekFromTimeline(long playTime) {
+        long time = Math.max(0, playTime - mStartDelay);
+        if (mStarted) {
+            seekRun(clampTime(time));
+        } else {
+            updateTimeline();
+            seekTimeline(clampTime(time));
+        }
+    }
+
     @Override
     public AnimatorSet clone() {
         final AnimatorSet anim = (AnimatorSet) super.clone();
@@ -558,17 +1154,28 @@ public final class AnimatorSet extends Animator {
          * and will populate any appropriate lists, when it is started.
          */
         anim.mNeedsSort = true;
+        anim.mNeedsLayout = true;
         anim.mTerminated = false;
         anim.mStarted = false;
-        anim.mPlayingSet = new ArrayList<Animator>();
-        anim.mNodeMap = new HashMap<Animator, Node>();
+        anim.mClock = null;
+        anim.mTimelineDone = false;
+        anim.mReversing = false;
+        anim.mReverseOrder = null;
+        anim.mSeekTime = -1;
+        anim.mCurrentTime = 0;
+        anim.mPlayOrder = new Node[0];
+        anim.mActiveNodes = new Node[0];
+        anim.mNumActiveNodes = 0;
+        anim.mNextNodeIndex = 0;
+        anim.mNumDoneNodes = 0;
+        anim.mNodeMap = new IdentityHashMap<Animator, Node>();
         anim.mNodes = new ArrayList<Node>();
         anim.mSortedNodes = new ArrayList<Node>();
 
         // Walk through the old nodes list, cloning each node and adding it to the new nodemap.
         // One problem is that the old node dependencies point to nodes in the old AnimatorSet.
         // We need to track the old/new nodes in order to reconstruct the dependencies in the clone.
-        HashMap<Node, Node> nodeCloneMap = new HashMap<Node, Node>(); // <old, new>
+        IdentityHashMap<Node, Node> nodeCloneMap = new IdentityHashMap<Node, Node>(); // <old, new>
         for (Node node : mNodes) {
             Node nodeClone = node.clone();
             nodeCloneMap.put(node, nodeClone);
@@ -576,28 +1183,11 @@ public final class AnimatorSet extends Animator {
             anim.mNodeMap.put(nodeClone.animation, nodeClone);
             // Clear out the dependencies in the clone; we'll set these up manually later
             nodeClone.dependencies = null;
-            nodeClone.tmpDependencies = null;
             nodeClone.nodeDependents = null;
             nodeClone.nodeDependencies = null;
-            // clear out any listeners that were set up by the AnimatorSet; these will
-            // be set up when the clone's nodes are sorted
-            ArrayList<AnimatorListener> cloneListeners = nodeClone.animation.getListeners();
-            if (cloneListeners != null) {
-                ArrayList<AnimatorListener> listenersToRemove = null;
-                for (AnimatorListener listener : cloneListeners) {
-                    if (listener instanceof AnimatorSetListener) {
-                        if (listenersToRemove == null) {
-                            listenersToRemove = new ArrayList<AnimatorListener>();
-                        }
-                        listenersToRemove.add(listener);
-                    }
-                }
-                if (listenersToRemove != null) {
-                    for (AnimatorListener listener : listenersToRemove) {
-                        cloneListeners.remove(listener);
-                    }
-                }
-            }
+            nodeClone.started = false;
+            nodeClone.done = false;
+            nodeClone.totalDuration = DURATION_INFINITE;
         }
         // Now that we've cloned all of the nodes, we're ready to walk through their
         // dependencies, mapping the old dependencies to the new nodes
@@ -607,7 +1197,7 @@ public final class AnimatorSet extends Animator {
                 for (Dependency dependency : node.dependencies) {
                     Node clonedDependencyNode = nodeCloneMap.get(dependency.node);
                     Dependency cloneDependency = new Dependency(clonedDependencyNode,
-                            dependency.rule);
+                            dependency.rule, dependency.delay);
                     nodeClone.addDependency(cloneDependency);
                 }
             }
@@ -617,158 +1207,53 @@ public final class AnimatorSet extends Animator {
     }
 
     /**
-     * This class is the mechanism by which animations are started based on events in other
-     * animations. If an animation has multiple dependencies on other animations, then
-     * all dependencies must be satisfied before the animation is started.
+     * The clock of a top-level AnimatorSet. It runs on the shared timing handler like any other
+     * ValueAnimator, but instead of animating values it plays the timeline of its set, and
+     * ends once every child animation has ended. Its own start delay is always zero; the start
+     * delay of the set is part of the timeline.
      */
-    private static class DependencyListener implements AnimatorListener {
-
-        private AnimatorSet mAnimatorSet;
-
-        // The node upon which the dependency is based.
-        private Node mNode;
-
-        // The Dependency rule (WITH or AFTER) that the listener should wait for on
-        // the node
-        private int mRule;
-
-        public DependencyListener(AnimatorSet animatorSet, Node node, int rule) {
-            this.mAnimatorSet = animatorSet;
-            this.mNode = node;
-            this.mRule = rule;
-        }
-
-        /**
-         * Ignore cancel events for now. We may want to handle this eventually,
-         * to prevent follow-on animations from running when some dependency
-         * animation is canceled.
-         */
-        public void onAnimationCancel(Animator animation) {
-        }
-
-        /**
-         * An end event is received - see if this is an event we are listening for
-         */
-        public void onAnimationEnd(Animator animation) {
-            if (mRule == Dependency.AFTER) {
-                startIfReady(animation);
-            }
-        }
-
-        /**
-         * Ignore repeat events for now
-         */
-        public void onAnimationRepeat(Animator animation) {
-        }
+    private static final class Clock extends ValueAnimator {
 
-        /**
-         * A start event is received - see if this is an event we are listening for
-         */
-        public void onAnimationStart(Animator animation) {
-            if (mRule == Dependency.WITH) {
-                startIfReady(animation);
-            }
-        }
-
-        /**
-         * Check whether the event received is one that the node was waiting for.
-         * If so, mark it as complete and see whether it's time to start
-         * the animation.
-         * @param dependencyAnimation the animation that sent the event.
-         */
-        private void startIfReady(Animator dependencyAnimation) {
-            if (mAnimatorSet.mTerminated) {
-                // if the parent AnimatorSet was canceled, then don't start any dependent anims
-                return;
-            }
-            Dependency dependencyToRemove = null;
-            int numDependencies = mNode.tmpDependencies.size();
-            for (int i = 0; i < numDependencies; ++i) {
-                Dependency dependency = mNode.tmpDependencies.get(i);
-                if (dependency.rule == mRule &&
-                        dependency.node.animation == dependencyAnimation) {
-                    // rule fired - remove the dependency and listener and check to
-                    // see whether it's time to start the animation
-                    dependencyToRemove = dependency;
-                    dependencyAnimation.removeListener(this);
-                    break;
-                }
-            }
-            mNode.tmpDependencies.remove(dependencyToRemove);
-            if (mNode.tmpDependencies.size() == 0) {
-                // all dependencies satisfied: start the animation
-                mNode.animation.start();
-                mAnimatorSet.mPlayingSet.add(mNode.animation);
-            }
-        }
+        private final AnimatorSet mAnimatorSet;
 
-    }
-
-    private class AnimatorSetListener implements AnimatorListener {
-
-        private AnimatorSet mAnimatorSet;
-
-        AnimatorSetListener(AnimatorSet animatorSet) {
+        Clock(AnimatorSet animatorSet) {
             mAnimatorSet = animatorSet;
-        }
-
-        public void onAnimationCancel(Animator animation) {
-            if (!mTerminated) {
-                // Listeners are already notified of the AnimatorSet canceling in cancel().
-                // The logic below only kicks in when animations end normally
-                if (mPlayingSet.size() == 0) {
-                    if (mListeners != null) {
-                        int numListeners = mListeners.size();
-                        for (int i = 0; i < numListeners; ++i) {
-                            mListeners.get(i).onAnimationCancel(mAnimatorSet);
-                        }
+            addListener(new AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    // The clock has been removed from the active animations by now, so
+                    // listeners of the set are free to start it again
+                    if (mAnimatorSet.mTimelineDone) {
+                        mAnimatorSet.onTimelineEnd();
                     }
                 }
-            }
+            });
         }
 
-        @SuppressWarnings("unchecked")
-        public void onAnimationEnd(Animator animation) {
-            animation.removeListener(this);
-            mPlayingSet.remove(animation);
-            Node animNode = mAnimatorSet.mNodeMap.get(animation);
-            animNode.done = true;
-            if (!mTerminated) {
-                // Listeners are already notified of the AnimatorSet ending in cancel() or
-                // end(); the logic below only kicks in when animations end normally
-                ArrayList<Node> sortedNodes = mAnimatorSet.mSortedNodes;
-                boolean allDone = true;
-                int numSortedNodes = sortedNodes.size();
-                for (int i = 0; i < numSortedNodes; ++i) {
-                    if (!sortedNodes.get(i).done) {
-                        allDone = false;
-                        break;
-                    }
-                }
-                if (allDone) {
-                    // If this was the last child animation to end, then notify listeners that this
-                    // AnimatorSet has ended
-                    if (mListeners != null) {
-                        ArrayList<AnimatorListener> tmpListeners =
-                                (ArrayList<AnimatorListener>) mListeners.clone();
-                        int numListeners = tmpListeners.size();
-                        for (int i = 0; i < numListeners; ++i) {
-                            tmpListeners.get(i).onAnimationEnd(mAnimatorSet);
-                        }
-                    }
-                    mAnimatorSet.mStarted = false;
+        @Override
+        boolean animationFrame(long currentTime) {
+            if (mPlayingState == STOPPED) {
+                mPlayingState = RUNNING;
+                if (mSeekTime < 0) {
+                    mStartTime = currentTime;
+                } else {
+                    mStartTime = currentTime - mSeekTime;
+                    // Now that we're playing, reset the seek time
+                    mSeekTime = -1;
                 }
             }
+            return mAnimatorSet.animateClock(currentTime - mStartTime);
         }
 
-        // Nothing to do
-        public void onAnimationRepeat(Animator animation) {
+        @Override
+        void initAnimation() {
+            // noop
         }
 
-        // Nothing to do
-        public void onAnimationStart(Animator animation) {
+        @Override
+        void animateValue(float fraction) {
+            // Noop
         }
-
     }
 
     /**
@@ -780,67 +1265,44 @@ public final class AnimatorSet extends Animator {
      * -     add r to sorted list
      * -     remove r as a dependency from any other node
      * -   any nodes with no dependencies are added to the roots list
+     *
+     * <p>Dependencies are only counted down, never removed from the nodes, so the sorted
+     * order stays valid and is reused by every start() until the graph changes.</p>
      */
     private void sortNodes() {
         if (mNeedsSort) {
-            mSortedNodes.clear();
-            ArrayList<Node> roots = new ArrayList<Node>();
+            final ArrayList<Node> sortedNodes = mSortedNodes;
+            sortedNodes.clear();
             int numNodes = mNodes.size();
+            sortedNodes.ensureCapacity(numNodes);
             for (int i = 0; i < numNodes; ++i) {
                 Node node = mNodes.get(i);
-                if (node.dependencies == null || node.dependencies.size() == 0) {
-                    roots.add(node);
+                node.pendingDependencies =
+                        (node.nodeDependencies == null) ? 0 : node.nodeDependencies.size();
+                if (node.pendingDependencies == 0) {
+                    sortedNodes.add(node);
                 }
             }
-            ArrayList<Node> tmpRoots = new ArrayList<Node>();
-            while (roots.size() > 0) {
-                int numRoots = roots.size();
-                for (int i = 0; i < numRoots; ++i) {
-                    Node root = roots.get(i);
-                    mSortedNodes.add(root);
-                    if (root.nodeDependents != null) {
-                        int numDependents = root.nodeDependents.size();
-                        for (int j = 0; j < numDependents; ++j) {
-                            Node node = root.nodeDependents.get(j);
-                            node.nodeDependencies.remove(root);
-                            if (node.nodeDependencies.size() == 0) {
-                                tmpRoots.add(node);
-                            }
+            // The sorted list doubles as the queue of roots: every node appended to it has had
+            // all of its dependencies sorted before it
+            for (int i = 0; i < sortedNodes.size(); ++i) {
+                Node root = sortedNodes.get(i);
+                if (root.nodeDependents != null) {
+                    int numDependents = root.nodeDependents.size();
+                    for (int j = 0; j < numDependents; ++j) {
+                        Node node = root.nodeDependents.get(j);
+                        if (--node.pendingDependencies == 0) {
+                            sortedNodes.add(node);
                         }
                     }
                 }
-                roots.clear();
-                roots.addAll(tmpRoots);
-                tmpRoots.clear();
             }
             mNeedsSort = false;
-            if (mSortedNodes.size() != mNodes.size()) {
+            mNeedsLayout = true;
+            if (sortedNodes.size() != numNodes) {
                 throw new IllegalStateException("Circular dependencies cannot exist"
                         + " in AnimatorSet");
             }
-        } else {
-            // Doesn't need sorting, but still need to add in the nodeDependencies list
-            // because these get removed as the event listeners fire and the dependencies
-            // are satisfied
-            int numNodes = mNodes.size();
-            for (int i = 0; i < numNodes; ++i) {
-                Node node = mNodes.get(i);
-                if (node.dependencies != null && node.dependencies.size() > 0) {
-                    int numDependencies = node.dependencies.size();
-                    for (int j = 0; j < numDependencies; ++j) {
-                        Dependency dependency = node.dependencies.get(j);
-                        if (node.nodeDependencies == null) {
-                            node.nodeDependencies = new ArrayList<Node>();
-                        }
-                        if (!node.nodeDependencies.contains(dependency.node)) {
-                            node.nodeDependencies.add(dependency.node);
-                        }
-                    }
-                }
-                // nodes are 'done' by default; they become un-done when started, and done
-                // again when ended
-                node.done = false;
-            }
         }
     }
 
@@ -859,9 +1321,17 @@ public final class AnimatorSet extends Animator {
         // The nature of the dependency (WITH or AFTER)
         public int rule;
 
+        // The time in ms after the start or end of the dependency node at which to start
+        public long delay;
+
         public Dependency(Node node, int rule) {
+            this(node, rule, 0);
+        }
+
+        public Dependency(Node node, int rule, long delay) {
             this.node = node;
             this.rule = rule;
+            this.delay = delay;
         }
     }
 
@@ -882,17 +1352,6 @@ public final class AnimatorSet extends Animator {
          */
         public ArrayList<Dependency> dependencies = null;
 
-        /**
-         * tmpDependencies is a runtime detail. We use the dependencies list for sorting.
-         * But we also use the list to keep track of when multiple dependencies are satisfied,
-         * but removing each dependency as it is satisfied. We do not want to remove
-         * the dependency itself from the list, because we need to retain that information
-         * if the AnimatorSet is launched in the future. So we create a copy of the dependency
-         * list when the AnimatorSet starts and use this tmpDependencies list to track the
-         * list of satisfied dependencies.
-         */
-        public ArrayList<Dependency> tmpDependencies = null;
-
         /**
          * nodeDependencies is just a list of the nodes that this Node is dependent upon.
          * This information is used in sortNodes(), to determine when a node is a root.
@@ -906,6 +1365,31 @@ public final class AnimatorSet extends Animator {
          */
         public ArrayList<Node> nodeDependents = null;
 
+        /**
+         * The offsets on the timeline, relative to the end of the AnimatorSet's start delay,
+         * at which this node's animation starts and ends. Either may be DURATION_INFINITE.
+         */
+        public long startTime = 0;
+        public long endTime = 0;
+
+        /**
+         * The total duration of this node's animation when the timeline was last laid out,
+         * used to tell whether it needs to be laid out again.
+         */
+        public long totalDuration = DURATION_INFINITE;
+
+        /**
+         * The number of dependencies of this node that have not been sorted yet. This is a
+         * utility field used in sortNodes.
+         */
+        public int pendingDependencies = 0;
+
+        /**
+         * Flag indicating whether the animation in this node has been started from the
+         * timeline in the current run of the AnimatorSet.
+         */
+        public boolean started = false;
+
         /**
          * Flag indicating whether the animation in this node is finished. This flag
          * is used by AnimatorSet to check, as each animation ends, whether all child animations
@@ -931,18 +1415,21 @@ public final class AnimatorSet extends Animator {
          */
         public void addDependency(Dependency dependency) {
             if (dependencies == null) {
-                dependencies = new ArrayList<Dependency>();
-                nodeDependencies = new ArrayList<Node>();
+                // Most nodes have a single dependency, such as the first animation passed to
+                // playTogether() or the previous one passed to playSequentially()
+                dependencies = new ArrayList<Dependency>(1);
+                nodeDependencies = new ArrayList<Node>(1);
             }
             dependencies.add(dependency);
-            if (!nodeDependencies.contains(dependency.node)) {
-                nodeDependencies.add(dependency.node);
-            }
             Node dependencyNode = dependency.node;
-            if (dependencyNode.nodeDependents == null) {
-                dependencyNode.nodeDependents = new ArrayList<Node>();
+            if (!nodeDependencies.contains(dependencyNode)) {
+                nodeDependencies.add(dependencyNode);
+                // Each dependent is listed once, to match the count kept by sortNodes()
+                if (dependencyNode.nodeDependents == null) {
+                    dependencyNode.nodeDependents = new ArrayList<Node>();
+                }
+                dependencyNode.nodeDependents.add(this);
             }
-            dependencyNode.nodeDependents.add(this);
         }
 
         @Override
@@ -1041,14 +1528,24 @@ public final class AnimatorSet extends Animator {
          * {@link AnimatorSet#play(Animator)} method starts.
          */
         public Builder with(Animator anim) {
+            return with(anim, 0);
+        }
+
+        /**
+         * Sets up the given animation to play the given amount of time after the animation
+         * supplied in the {@link AnimatorSet#play(Animator)} call that created this
+         * <code>Builder</code> object starts. Used by playStaggered().
+         */
+        Builder with(Animator anim, long delay) {
             Node node = mNodeMap.get(anim);
             if (node == null) {
                 node = new Node(anim);
                 mNodeMap.put(anim, node);
                 mNodes.add(node);
             }
-            Dependency dependency = new Dependency(mCurrentNode, Dependency.WITH);
+            Dependency dependency = new Dependency(mCurrentNode, Dependency.WITH, delay);
             node.addDependency(dependency);
+            mNeedsSort = true;
             return this;
         }
 
@@ -1069,6 +1566,7 @@ public final class AnimatorSet extends Animator {
             }
             Dependency dependency = new Dependency(mCurrentNode, Dependency.AFTER);
             node.addDependency(dependency);
+            mNeedsSort = true;
             return this;
         }
 
@@ -1089,6 +1587,7 @@ public final class AnimatorSet extends Animator {
             }
             Dependency dependency = new Dependency(node, Dependency.AFTER);
             mCurrentNode.addDependency(dependency);
+            mNeedsSort = true;
             return this;
         }
 
@@ -0,0 +1,87 @@
+package com.nineoldandroids.animation;
+
+import java.util.ArrayList;
+
+/**
+ * A prototype for playing the same {@link ObjectAnimator} on many targets, such as one
+ * animation per row of a list. The property accessors, evaluators and keyframes of the
+ * prototype are resolved once per target class, and every animator made from the template
+ * shares them, holding nothing of its own but its target, playback state and current values.
+ *
+ * <p>This only applies when every value of the prototype is given up front. A prototype that
+ * takes its start or end value from its target, such as
+ * <code>ObjectAnimator.ofFloat(null, "alpha", 0f)</code>, needs its own keyframes for every
+ * target, so the template falls back to cloning it.</p>
+ *
+ * <p>Animators made from a template are independent of each other and can be configured
+ * further like any other animator; calls that change their keyframes or evaluator, including
+ * {@link ObjectAnimator#setupStartValues()} and {@link ObjectAnimator#setupEndValues()}, give
+ * that animator its own copy of the keyframes first.</p>
+ */
+public final class AnimatorTemplate {
+    private final ObjectAnimator mPrototype;
+
+    // The class of target that the accessors of the prototype have been resolved for
+    private Class<?> mTargetClass = null;
+
+    // Whether every keyframe of the prototype holds a value, so that they can be shared
+    private final boolean mShareable;
+
+    /**
+     * Creates a template from the given animation. The animation is copied, so later changes
+     * to it do not affect the template; its target is ignored.
+     *
+     * @param prototype The animation to play on every target.
+     */
+    public AnimatorTemplate(ObjectAnimator prototype) {
+        if (prototype == null) {
+            throw new IllegalArgumentException("prototype must not be null");
+        }
+        mPrototype = prototype.clone();
+        mPrototype.setTarget(null);
+        mShareable = hasAllValues(mPrototype.getValues());
+    }
+
+    /**
+     * Returns a new animator playing the prototype animation on the given target.
+     *
+     * @param target The object whose property is to be animated.
+     * @return An animator that has not been started.
+     */
+    public ObjectAnimator newAnimator(Object target) {
+        if (target == null) {
+            throw new IllegalArgumentException("target must not be null");
+        }
+        if (!mShareable) {
+            ObjectAnimator anim = mPrototype.clone();
+            anim.setTarget(target);
+            return anim;
+        }
+        Class<?> targetClass = target.getClass();
+        if (targetClass != mTargetClass) {
+            mPrototype.initForTarget(target);
+            mTargetClass = targetClass;
+        }
+        return mPrototype.cloneForTarget(target);
+    }
+
+    private static boolean hasAllValues(PropertyValuesHolder[] values) {
+        if (values == null || values.length == 0) {
+            return false;
+        }
+        int numValues = values.length;
+        for (int i = 0; i < numValues; ++i) {
+            if (values[i].mKeyframeSet == null) {
+                return false;
+            }
+            ArrayList<Keyframe> keyframes = values[i].mKeyframeSet.mKeyframes;
+            int numKeyframes = keyframes.size();
+            for (int j = 0; j < numKeyframes; ++j) {
+                if (!keyframes.get(j).hasValue()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -19,8 +19,50 @@ package com.nineoldandroids.animation;
 /**
  * This evaluator can be used to perform type interpolation between integer
  * values that represent ARGB colors.
+ *
+ * <p>Int animations with this evaluator, such as those made by
+ * {@link ValueAnimator#ofArgb(int...)}, call {@link #evaluate(float, int, int)} directly,
+ * so that colors are animated without boxing the values of each frame. Subclasses are always
+ * called through {@link #evaluate(float, Object, Object)}, so that they may override it.</p>
  */
 public class ArgbEvaluator implements TypeEvaluator {
+    private static final ArgbEvaluator sInstance = new ArgbEvaluator();
+
+    /**
+     * Whether the color channels are blended in linear light rather than as stored.
+     */
+    private final boolean mLinear;
+
+    /**
+     * Returns an instance of <code>ArgbEvaluator</code> that interpolates each channel of the
+     * colors as it is stored. The evaluator holds no state, so this instance can be used by
+     * any number of animations at once.
+     *
+     * @return An ArgbEvaluator instance.
+     */
+    public static ArgbEvaluator getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Constructs an evaluator that interpolates each channel of the colors as it is stored.
+     */
+    public ArgbEvaluator() {
+        this(false);
+    }
+
+    /**
+     * Constructs an evaluator that, if <code>linear</code> is true, converts the red, green
+     * and blue channels from sRGB to linear light, interpolates them there and converts the
+     * result back, through lookup tables. Interpolating the stored values instead, as the
+     * default does, makes the colors in between two quite different colors look darker than
+     * either of them. Alpha is always interpolated as it is stored.
+     *
+     * @param linear Whether to interpolate the color channels in linear light.
+     */
+    public ArgbEvaluator(boolean linear) {
+        mLinear = linear;
+    }
 
     /**
      * This function returns the calculated in-between value for a color
@@ -39,21 +81,81 @@ public class ArgbEvaluator implements TypeEvaluator {
      * resulting values in the same way.
      */
     public Object evaluate(float fraction, Object startValue, Object endValue) {
-        int startInt = (Integer) startValue;
-        int startA = (startInt >> 24);
-        int startR = (startInt >> 16) & 0xff;
-        int startG = (startInt >> 8) & 0xff;
-        int startB = startInt & 0xff;
-
-        int endInt = (Integer) endValue;
-        int endA = (endInt >> 24);
-        int endR = (endInt >> 16) & 0xff;
-        int endG = (endInt >> 8) & 0xff;
-        int endB = endInt & 0xff;
-
-        return (int)((startA + (int)(fraction * (endA - startA))) << 24) |
-                (int)((startR + (int)(fraction * (endR - startR))) << 16) |
-                (int)((startG + (int)(fraction * (endG - startG))) << 8) |
-                (int)((startB + (int)(fraction * (endB - startB))));
+        return evaluate(fraction, ((Integer) startValue).intValue(),
+                ((Integer) endValue).intValue());
+    }
+
+    /**
+     * Returns the color between the given colors at the given fraction, as
+     * {@link #evaluate(float, Object, Object)} does, without boxing.
+     *
+     * @param fraction The fraction from the starting to the ending values
+     * @param startValue The starting color
+     * @param endValue The ending color
+     * @return The interpolated color.
+     */
+    public int evaluate(float fraction, int startValue, int endValue) {
+        int startA = startValue >>> 24;
+        int startR = (startValue >> 16) & 0xff;
+        int startG = (startValue >> 8) & 0xff;
+        int startB = startValue & 0xff;
+
+        int endA = endValue >>> 24;
+        int endR = (endValue >> 16) & 0xff;
+        int endG = (endValue >> 8) & 0xff;
+        int endB = endValue & 0xff;
+
+        int a = startA + (int)(fraction * (endA - startA));
+        if (!mLinear) {
+            return (a << 24) |
+                    ((startR + (int)(fraction * (endR - startR))) << 16) |
+                    ((startG + (int)(fraction * (endG - startG))) << 8) |
+                    (startB + (int)(fraction * (endB - startB)));
+        }
+        return (a << 24) |
+                (interpolateLinear(fraction, startR, endR) << 16) |
+                (interpolateLinear(fraction, startG, endG) << 8) |
+                interpolateLinear(fraction, startB, endB);
+    }
+
+    private static int interpolateLinear(float fraction, int start, int end) {
+        final int[] toLinear = LinearTables.TO_LINEAR;
+        int startLinear = toLinear[start];
+        int linear = startLinear + (int)(fraction * (toLinear[end] - startLinear));
+        // Interpolators may overshoot the end values
+        if (linear < 0) {
+            linear = 0;
+        } else if (linear > LinearTables.MAX_LINEAR) {
+            linear = LinearTables.MAX_LINEAR;
+        }
+        return LinearTables.FROM_LINEAR[linear] & 0xff;
+    }
+
+    /**
+     * The sRGB transfer function and its inverse, between 8-bit channels and 12-bit linear
+     * values, which is enough for every channel value to round trip. Only built once an
+     * evaluator blends in linear light.
+     */
+    private static final class LinearTables {
+        static final int MAX_LINEAR = 4095;
+        static final int[] TO_LINEAR = new int[256];
+        static final byte[] FROM_LINEAR = new byte[MAX_LINEAR + 1];
+
+        static {
+            for (int i = 0; i < TO_LINEAR.length; ++i) {
+                double c = i / 255.0;
+                double linear = c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+                TO_LINEAR[i] = (int) Math.round(linear * MAX_LINEAR);
+            }
+            for (int i = 0; i <= MAX_LINEAR; ++i) {
+                double linear = (double) i / MAX_LINEAR;
+                double c = linear <= 0.0031308 ?
+                        linear * 12.92 : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+                FROM_LINEAR[i] = (byte) Math.round(c * 255);
+            }
+        }
+
+        //No instances
+        private LinearTables() {}
     }
-}
\ No newline at end of file
+}
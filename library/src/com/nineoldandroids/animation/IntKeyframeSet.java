@@ -38,10 +38,21 @@ class IntKeyframeSet extends KeyframeSet {
     private int deltaValue;
     private boolean firstTime = true;
 
+    // The evaluator when it is exactly an ArgbEvaluator, which evaluates ints without boxing
+    // them. A subclass may override evaluate(float, Object, Object), so it is called through that.
+    private ArgbEvaluator mArgbEvaluator;
+
     public IntKeyframeSet(IntKeyframe... keyframes) {
         super(keyframes);
     }
 
+    @Override
+    public void setEvaluator(TypeEvaluator evaluator) {
+        super.setEvaluator(evaluator);
+        mArgbEvaluator = (evaluator != null && evaluator.getClass() == ArgbEvaluator.class)
+                ? (ArgbEvaluator) evaluator : null;
+    }
+
     @Override
     public Object getValue(float fraction) {
         return getIntValue(fraction);
@@ -72,6 +83,8 @@ class IntKeyframeSet extends KeyframeSet {
             }
             if (mEvaluator == null) {
                 return firstValue + (int)(fraction * deltaValue);
+            } else if (mArgbEvaluator != null) {
+                return mArgbEvaluator.evaluate(fraction, firstValue, lastValue);
             } else {
                 return ((Number)mEvaluator.evaluate(fraction, firstValue, lastValue)).intValue();
             }
@@ -88,10 +101,7 @@ class IntKeyframeSet extends KeyframeSet {
                 fraction = interpolator.getInterpolation(fraction);
             }
             float intervalFraction = (fraction - prevFraction) / (nextFraction - prevFraction);
-            return mEvaluator == null ?
-                    prevValue + (int)(intervalFraction * (nextValue - prevValue)) :
-                    ((Number)mEvaluator.evaluate(intervalFraction, prevValue, nextValue)).
-                            intValue();
+            return evaluate(intervalFraction, prevValue, nextValue);
         } else if (fraction >= 1f) {
             final IntKeyframe prevKeyframe = (IntKeyframe) mKeyframes.get(mNumKeyframes - 2);
             final IntKeyframe nextKeyframe = (IntKeyframe) mKeyframes.get(mNumKeyframes - 1);
@@ -104,9 +114,7 @@ class IntKeyframeSet extends KeyframeSet {
                 fraction = interpolator.getInterpolation(fraction);
             }
             float intervalFraction = (fraction - prevFraction) / (nextFraction - prevFraction);
-            return mEvaluator == null ?
-                    prevValue + (int)(intervalFraction * (nextValue - prevValue)) :
-                    ((Number)mEvaluator.evaluate(intervalFraction, prevValue, nextValue)).intValue();
+            return evaluate(intervalFraction, prevValue, nextValue);
         }
         IntKeyframe prevKeyframe = (IntKeyframe) mKeyframes.get(0);
         for (int i = 1; i < mNumKeyframes; ++i) {
@@ -120,10 +128,7 @@ class IntKeyframeSet extends KeyframeSet {
                     (nextKeyframe.getFraction() - prevKeyframe.getFraction());
                 int prevValue = prevKeyframe.getIntValue();
                 int nextValue = nextKeyframe.getIntValue();
-                return mEvaluator == null ?
-                        prevValue + (int)(intervalFraction * (nextValue - prevValue)) :
-                        ((Number)mEvaluator.evaluate(intervalFraction, prevValue, nextValue)).
-                                intValue();
+                return evaluate(intervalFraction, prevValue, nextValue);
             }
             prevKeyframe = nextKeyframe;
         }
@@ -131,5 +136,14 @@ class IntKeyframeSet extends KeyframeSet {
         return ((Number)mKeyframes.get(mNumKeyframes - 1).getValue()).intValue();
     }
 
+    private int evaluate(float fraction, int startValue, int endValue) {
+        if (mEvaluator == null) {
+            return startValue + (int)(fraction * (endValue - startValue));
+        } else if (mArgbEvaluator != null) {
+            return mArgbEvaluator.evaluate(fraction, startValue, endValue);
+        }
+        return ((Number)mEvaluator.evaluate(fraction, startValue, endValue)).intValue();
+    }
+
 }
 
@@ -16,9 +16,11 @@
 
 package com.nineoldandroids.animation;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import android.util.Log;
 import android.view.View;
@@ -38,27 +40,102 @@ import com.nineoldandroids.view.animation.AnimatorProxy;
  */
 public final class ObjectAnimator extends ValueAnimator {
     private static final boolean DBG = false;
-    private static final Map<String, Property> PROXY_PROPERTIES = new HashMap<String, Property>();
+    /**
+     * The built-in properties of views, by name. Names are resolved to them as soon as the
+     * target is known, so that animating a view property never goes through reflection.
+     */
+    private static final Map<String, Property> VIEW_PROPERTIES = new HashMap<String, Property>();
 
     static {
-        PROXY_PROPERTIES.put("alpha", PreHoneycombCompat.ALPHA);
-        PROXY_PROPERTIES.put("pivotX", PreHoneycombCompat.PIVOT_X);
-        PROXY_PROPERTIES.put("pivotY", PreHoneycombCompat.PIVOT_Y);
-        PROXY_PROPERTIES.put("translationX", PreHoneycombCompat.TRANSLATION_X);
-        PROXY_PROPERTIES.put("translationY", PreHoneycombCompat.TRANSLATION_Y);
-        PROXY_PROPERTIES.put("rotation", PreHoneycombCompat.ROTATION);
-        PROXY_PROPERTIES.put("rotationX", PreHoneycombCompat.ROTATION_X);
-        PROXY_PROPERTIES.put("rotationY", PreHoneycombCompat.ROTATION_Y);
-        PROXY_PROPERTIES.put("scaleX", PreHoneycombCompat.SCALE_X);
-        PROXY_PROPERTIES.put("scaleY", PreHoneycombCompat.SCALE_Y);
-        PROXY_PROPERTIES.put("scrollX", PreHoneycombCompat.SCROLL_X);
-        PROXY_PROPERTIES.put("scrollY", PreHoneycombCompat.SCROLL_Y);
-        PROXY_PROPERTIES.put("x", PreHoneycombCompat.X);
-        PROXY_PROPERTIES.put("y", PreHoneycombCompat.Y);
-    }
-
-    // The target object on which the property exists, set in the constructor
+        if (AnimatorProxy.NEEDS_PROXY) {
+            VIEW_PROPERTIES.put("alpha", PreHoneycombCompat.ALPHA);
+            VIEW_PROPERTIES.put("pivotX", PreHoneycombCompat.PIVOT_X);
+            VIEW_PROPERTIES.put("pivotY", PreHoneycombCompat.PIVOT_Y);
+            VIEW_PROPERTIES.put("translationX", PreHoneycombCompat.TRANSLATION_X);
+            VIEW_PROPERTIES.put("translationY", PreHoneycombCompat.TRANSLATION_Y);
+            VIEW_PROPERTIES.put("rotation", PreHoneycombCompat.ROTATION);
+            VIEW_PROPERTIES.put("rotationX", PreHoneycombCompat.ROTATION_X);
+            VIEW_PROPERTIES.put("rotationY", PreHoneycombCompat.ROTATION_Y);
+            VIEW_PROPERTIES.put("scaleX", PreHoneycombCompat.SCALE_X);
+            VIEW_PROPERTIES.put("scaleY", PreHoneycombCompat.SCALE_Y);
+            VIEW_PROPERTIES.put("scrollX", PreHoneycombCompat.SCROLL_X);
+            VIEW_PROPERTIES.put("scrollY", PreHoneycombCompat.SCROLL_Y);
+            VIEW_PROPERTIES.put("x", PreHoneycombCompat.X);
+            VIEW_PROPERTIES.put("y", PreHoneycombCompat.Y);
+        } else {
+            VIEW_PROPERTIES.put("alpha", HoneycombCompat.ALPHA);
+            VIEW_PROPERTIES.put("pivotX", HoneycombCompat.PIVOT_X);
+            VIEW_PROPERTIES.put("pivotY", HoneycombCompat.PIVOT_Y);
+            VIEW_PROPERTIES.put("translationX", HoneycombCompat.TRANSLATION_X);
+            VIEW_PROPERTIES.put("translationY", HoneycombCompat.TRANSLATION_Y);
+            VIEW_PROPERTIES.put("rotation", HoneycombCompat.ROTATION);
+            VIEW_PROPERTIES.put("rotationX", HoneycombCompat.ROTATION_X);
+            VIEW_PROPERTIES.put("rotationY", HoneycombCompat.ROTATION_Y);
+            VIEW_PROPERTIES.put("scaleX", HoneycombCompat.SCALE_X);
+            VIEW_PROPERTIES.put("scaleY", HoneycombCompat.SCALE_Y);
+            VIEW_PROPERTIES.put("scrollX", HoneycombCompat.SCROLL_X);
+            VIEW_PROPERTIES.put("scrollY", HoneycombCompat.SCROLL_Y);
+            VIEW_PROPERTIES.put("x", HoneycombCompat.X);
+            VIEW_PROPERTIES.put("y", HoneycombCompat.Y);
+        }
+    }
+
+    /**
+     * The auto-canceling animations that are running on this thread, by target. A target rarely
+     * has more than a few, so the animations that a starting animation conflicts with are
+     * found in constant time, however many animations are running. The targets are held
+     * weakly, so that listing an animation with a weakly held target does not keep the target
+     * alive; like views, targets are expected not to override equals().
+     */
+    private static final ThreadLocal<WeakHashMap<Object, ArrayList<ObjectAnimator>>>
+            sAutoCancelAnims = new ThreadLocal<WeakHashMap<Object, ArrayList<ObjectAnimator>>>() {
+                @Override
+                protected WeakHashMap<Object, ArrayList<ObjectAnimator>> initialValue() {
+                    return new WeakHashMap<Object, ArrayList<ObjectAnimator>>();
+                }
+            };
+
+    /**
+     * Value for {@link #setDetachBehavior(int)}: the animation keeps running on a view that
+     * has been detached from its window.
+     */
+    public static final int DETACH_IGNORE = 0;
+
+    /**
+     * Value for {@link #setDetachBehavior(int)}: the animation is canceled once its view has
+     * been detached from its window.
+     */
+    public static final int DETACH_CANCEL = 1;
+
+    /**
+     * Value for {@link #setDetachBehavior(int)}: the animation is ended, setting its end values,
+     * once its view has been detached from its window.
+     */
+    public static final int DETACH_END = 2;
+
+    // The target object on which the property exists, set in the constructor. When the target
+    // is held weakly, it is in mTargetRef instead.
     private Object mTarget;
+    private WeakReference<Object> mTargetRef = null;
+    private boolean mWeakTarget = false;
+
+    // What happens to this animation when its target view is detached from its window
+    private int mDetachBehavior = DETACH_IGNORE;
+
+    // Whether the target view has been seen attached to a window since this animation started
+    private boolean mTargetAttached = false;
+
+    // Whether starting this animation takes its properties over from conflicting ones
+    private boolean mAutoCancel = false;
+
+    // The properties, by position in mValues, that an auto-canceling animation has taken over
+    // during the current run, or null if there are none. They are still calculated but no
+    // longer set on the target, and are animated again from the next start.
+    private boolean[] mSuppressedValues = null;
+
+    // The list of sAutoCancelAnims that this animation is in while it runs. The list is kept
+    // rather than the target, which must not be held strongly when mWeakTarget is set.
+    private ArrayList<ObjectAnimator> mAutoCancelList = null;
 
     private String mPropertyName;
 
@@ -99,6 +176,15 @@ public final class ObjectAnimator extends ValueAnimator {
             valuesHolder.setPropertyName(propertyName);
             mValuesMap.remove(oldName);
             mValuesMap.put(propertyName, valuesHolder);
+            if (valuesHolder.mProperty != null &&
+                    valuesHolder.mProperty == VIEW_PROPERTIES.get(oldName)) {
+                // Resolved from the old name, so it no longer applies
+                valuesHolder.setProperty(null);
+            }
+            valuesHolder.mSetter = null;
+            if (getTarget() instanceof View) {
+                resolveViewProperties();
+            }
         }
         mPropertyName = propertyName;
         // New property/values/target should cause re-initialization prior to starting
@@ -213,6 +299,43 @@ public final class ObjectAnimator extends ValueAnimator {
         return anim;
     }
 
+    /**
+     * Constructs and returns an ObjectAnimator that animates between ARGB color values, which
+     * are interpolated by {@link ArgbEvaluator} without boxing them. A single value implies
+     * that that value is the one being animated to. Two values imply a starting and ending
+     * values. More than two values imply a starting value, values to animate through along
+     * the way, and an ending value (these values will be distributed evenly across the
+     * duration of the animation).
+     *
+     * @param target The object whose property is to be animated. This object should
+     * have a public method on it called <code>setName()</code>, where <code>name</code> is
+     * the value of the <code>propertyName</code> parameter.
+     * @param propertyName The name of the property being animated.
+     * @param values A set of colors that the animation will animate between over time.
+     * @return An ObjectAnimator object that is set up to animate between the given values.
+     */
+    public static ObjectAnimator ofArgb(Object target, String propertyName, int... values) {
+        ObjectAnimator anim = ofInt(target, propertyName, values);
+        anim.setEvaluator(ArgbEvaluator.getInstance());
+        return anim;
+    }
+
+    /**
+     * Constructs and returns an ObjectAnimator that animates between ARGB color values, as
+     * {@link #ofArgb(Object, String, int...)} does.
+     *
+     * @param target The object whose property is to be animated.
+     * @param property The property being animated.
+     * @param values A set of colors that the animation will animate between over time.
+     * @return An ObjectAnimator object that is set up to animate between the given values.
+     */
+    public static <T> ObjectAnimator ofArgb(T target, Property<T, Integer> property,
+            int... values) {
+        ObjectAnimator anim = ofInt(target, property, values);
+        anim.setEvaluator(ArgbEvaluator.getInstance());
+        return anim;
+    }
+
     /**
      * Constructs and returns an ObjectAnimator that animates between float values. A single
      * value implies that that value is the one being animated to. Two values imply a starting
@@ -325,6 +448,42 @@ public final class ObjectAnimator extends ValueAnimator {
         return anim;
     }
 
+    @Override
+    public void setValues(PropertyValuesHolder... values) {
+        super.setValues(values);
+        mSuppressedValues = null;
+        if (getTarget() instanceof View) {
+            resolveViewProperties();
+        }
+    }
+
+    /**
+     * Resolves the names of the built-in view properties animated by this animation to their
+     * Property objects, so that they are never set through reflection, which fails for them
+     * before Honeycomb. Names that have already been resolved are skipped.
+     */
+    private void resolveViewProperties() {
+        if (mValues == null) {
+            return;
+        }
+        int numValues = mValues.length;
+        for (int i = 0; i < numValues; ++i) {
+            PropertyValuesHolder valuesHolder = mValues[i];
+            if (valuesHolder.mProperty == null) {
+                Property property = VIEW_PROPERTIES.get(valuesHolder.getPropertyName());
+                if (property != null && isValueTypeOf(property, valuesHolder.mValueType)) {
+                    valuesHolder.setProperty(property);
+                }
+            }
+        }
+    }
+
+    private static boolean isValueTypeOf(Property property, Class valueType) {
+        final Class type = property.getType();
+        return type == valueType || (type == Float.class && valueType == float.class) ||
+                (type == Integer.class && valueType == int.class);
+    }
+
     @Override
     public void setIntValues(int... values) {
         if (mValues == null || mValues.length == 0) {
@@ -373,7 +532,7 @@ public final class ObjectAnimator extends ValueAnimator {
     @Override
     public void start() {
         if (DBG) {
-            Log.d("ObjectAnimator", "Anim target, duration: " + mTarget + ", " + getDuration());
+            Log.d("ObjectAnimator", "Anim target, duration: " + getTarget() + ", " + getDuration());
             for (int i = 0; i < mValues.length; ++i) {
                 PropertyValuesHolder pvh = mValues[i];
                 ArrayList<Keyframe> keyframes = pvh.mKeyframeSet.mKeyframes;
@@ -400,14 +559,21 @@ public final class ObjectAnimator extends ValueAnimator {
     @Override
     void initAnimation() {
         if (!mInitialized) {
+            final Object target = getTarget();
+            if (target == null && mTargetRef != null) {
+                // The weakly held target has been collected; there is nothing to set up
+                return;
+            }
+            // The target may have been set without going through setTarget(), and the names
+            // changed since they were last resolved
+            if (target instanceof View) {
+                resolveViewProperties();
+            }
             // mValueType may change due to setter/getter setup; do this before calling super.init(),
             // which uses mValueType to set up the default type evaluator.
-            if ((mProperty == null) && AnimatorProxy.NEEDS_PROXY && (mTarget instanceof View) && PROXY_PROPERTIES.containsKey(mPropertyName)) {
-                setProperty(PROXY_PROPERTIES.get(mPropertyName));
-            }
             int numValues = mValues.length;
             for (int i = 0; i < numValues; ++i) {
-                mValues[i].setupSetterAndGetter(mTarget);
+                mValues[i].setupSetterAndGetter(target);
             }
             super.initAnimation();
         }
@@ -435,7 +601,10 @@ public final class ObjectAnimator extends ValueAnimator {
      * @return The object being animated
      */
     public Object getTarget() {
-        return mTarget;
+        if (mTarget != null || mTargetRef == null) {
+            return mTarget;
+        }
+        return mTargetRef.get();
     }
 
     /**
@@ -445,12 +614,15 @@ public final class ObjectAnimator extends ValueAnimator {
      */
     @Override
     public void setTarget(Object target) {
-        if (mTarget != target) {
-            final Object oldTarget = mTarget;
-            mTarget = target;
+        final Object oldTarget = getTarget();
+        if (oldTarget != target) {
+            setTargetField(target);
             if (oldTarget != null && target != null && oldTarget.getClass() == target.getClass()) {
                 return;
             }
+            if (target instanceof View) {
+                resolveViewProperties();
+            }
             // New target type should cause re-initialization prior to starting
             mInitialized = false;
         }
@@ -461,8 +633,10 @@ public final class ObjectAnimator extends ValueAnimator {
         initAnimation();
         int numValues = mValues.length;
         for (int i = 0; i < numValues; ++i) {
-            mValues[i].setupStartValue(mTarget);
+            mValues[i].setupStartValue(getTarget());
         }
+        // The keyframes may have picked up new values from the target
+        bakeSampleTable();
     }
 
     @Override
@@ -470,8 +644,10 @@ public final class ObjectAnimator extends ValueAnimator {
         initAnimation();
         int numValues = mValues.length;
         for (int i = 0; i < numValues; ++i) {
-            mValues[i].setupEndValue(mTarget);
+            mValues[i].setupEndValue(getTarget());
         }
+        // The keyframes may have picked up new values from the target
+        bakeSampleTable();
     }
 
     /**
@@ -489,22 +665,301 @@ public final class ObjectAnimator extends ValueAnimator {
     @Override
     void animateValue(float fraction) {
         super.animateValue(fraction);
+        final Object target = getTarget();
+        if (target == null && mTargetRef != null) {
+            // The weakly held target has been collected; the next frame cancels the animation
+            return;
+        }
+        final boolean[] suppressed = mSuppressedValues;
         int numValues = mValues.length;
         for (int i = 0; i < numValues; ++i) {
-            mValues[i].setAnimatedValue(mTarget);
+            if (suppressed == null || !suppressed[i]) {
+                mValues[i].setAnimatedValue(target);
+            }
+        }
+    }
+
+    @Override
+    boolean animationFrame(long currentTime) {
+        if (stopIfTargetGone(false)) {
+            // Removed from the running animations, which the animation handler notices
+            return false;
+        }
+        return super.animationFrame(currentTime);
+    }
+
+    @Override
+    boolean animateFromTimeline(long playTime, boolean inReverse) {
+        if (stopIfTargetGone(true)) {
+            return true;
+        }
+        return super.animateFromTimeline(playTime, inReverse);
+    }
+
+    /**
+     * Stops this animation if its weakly held target has been collected, or if its target view
+     * has been detached from its window and the detach behavior says so. Views that have not
+     * been attached since the animation started are left alone, as they are most likely about
+     * to be added to the hierarchy.
+     *
+     * @param fromTimeline Whether the animation is being driven by an AnimatorSet.
+     * @return true if the animation was stopped.
+     */
+    private boolean stopIfTargetGone(boolean fromTimeline) {
+        final Object target = getTarget();
+        if (target == null) {
+            if (mTargetRef == null) {
+                return false;
+            }
+            cancel();
+            return true;
+        }
+        if (mDetachBehavior == DETACH_IGNORE || !(target instanceof View)) {
+            return false;
+        }
+        if (((View) target).getWindowToken() != null) {
+            mTargetAttached = true;
+            return false;
+        }
+        if (!mTargetAttached) {
+            return false;
+        }
+        if (mDetachBehavior == DETACH_CANCEL) {
+            cancel();
+        } else if (fromTimeline) {
+            endFromTimeline();
+        } else {
+            end();
+        }
+        return true;
+    }
+
+    /**
+     * Sets whether this animation holds its target weakly, so that it does not keep alive a
+     * target that is no longer referenced anywhere else. An animation whose target has been
+     * garbage collected is canceled on its next frame. Targets are held strongly by default.
+     *
+     * @param weak Whether the target is held through a weak reference.
+     */
+    public void setWeakTarget(boolean weak) {
+        if (mWeakTarget != weak) {
+            final Object target = getTarget();
+            mWeakTarget = weak;
+            setTargetField(target);
+        }
+    }
+
+    /**
+     * Returns whether this animation holds its target weakly.
+     *
+     * @see #setWeakTarget(boolean)
+     */
+    public boolean isWeakTarget() {
+        return mWeakTarget;
+    }
+
+    /**
+     * Sets what happens to this animation when its target is a {@link View} that is detached
+     * from its window while the animation runs, for example when the activity is torn down or
+     * the row of a list it animates is removed. Stopping such animations saves the work of
+     * animating views that are no longer drawn and releases them sooner. The detachment is
+     * noticed on the next animation frame after it happens.
+     *
+     * @param behavior One of {@link #DETACH_IGNORE}, the default, {@link #DETACH_CANCEL} or
+     * {@link #DETACH_END}.
+     */
+    public void setDetachBehavior(int behavior) {
+        if (behavior != DETACH_IGNORE && behavior != DETACH_CANCEL && behavior != DETACH_END) {
+            throw new IllegalArgumentException("unknown detach behavior " + behavior);
+        }
+        mDetachBehavior = behavior;
+    }
+
+    /**
+     * Returns what happens to this animation when its target view is detached from its window.
+     *
+     * @see #setDetachBehavior(int)
+     */
+    public int getDetachBehavior() {
+        return mDetachBehavior;
+    }
+
+    private void setTargetField(Object target) {
+        if (mWeakTarget && target != null) {
+            mTargetRef = new WeakReference<Object>(target);
+            mTarget = null;
+        } else {
+            mTargetRef = null;
+            mTarget = target;
         }
     }
 
     @Override
     public ObjectAnimator clone() {
         final ObjectAnimator anim = (ObjectAnimator) super.clone();
+        anim.mAutoCancelList = null;
+        anim.mSuppressedValues = null;
+        return anim;
+    }
+
+    /**
+     * Sets whether starting this animation takes its properties over from any running
+     * ObjectAnimator with the same target, so that the two do not fight over them. A running
+     * animation whose properties are all animated by this one is canceled; one that shares
+     * only some of them stops setting those for the rest of its run and carries on with the
+     * others, and animates all of them again the next time it is started. Either way, the
+     * shared properties are left where they were, so this animation carries on from the
+     * current values for any start value that it takes from the target.
+     * Auto-cancel is off by default.
+     *
+     * @param cancel Whether starting this animation cancels conflicting ones.
+     */
+    public void setAutoCancel(boolean cancel) {
+        mAutoCancel = cancel;
+    }
+
+    /**
+     * Returns whether starting this animation cancels conflicting ones.
+     *
+     * @see #setAutoCancel(boolean)
+     */
+    public boolean isAutoCancel() {
+        return mAutoCancel;
+    }
+
+    @Override
+    void onStarted() {
+        if (mAutoCancelList != null) {
+            // Restarted while running
+            onStopped();
+        }
+        mTargetAttached = false;
+        mSuppressedValues = null;
+        final Object target = getTarget();
+        if (target == null || mValues == null || !isAutoCancel()) {
+            return;
+        }
+        final WeakHashMap<Object, ArrayList<ObjectAnimator>> autoCancelAnims =
+                sAutoCancelAnims.get();
+        ArrayList<ObjectAnimator> anims = autoCancelAnims.get(target);
+        if (anims == null) {
+            anims = new ArrayList<ObjectAnimator>(2);
+        } else {
+            // Canceling an animation removes it from the list
+            for (int i = anims.size() - 1; i >= 0; --i) {
+                if (i < anims.size()) {
+                    ObjectAnimator anim = anims.get(i);
+                    int numShared = countSharedProperties(anim);
+                    if (numShared == anim.mValues.length) {
+                        anim.cancel();
+                    } else if (numShared > 0) {
+                        // The other properties of that animation carry on
+                        anim.suppressValues(mValuesMap);
+                    }
+                }
+            }
+        }
+        // The last animation canceled above takes the list out of the map
+        autoCancelAnims.put(target, anims);
+        anims.add(this);
+        mAutoCancelList = anims;
+    }
+
+    @Override
+    void onStopped() {
+        mSuppressedValues = null;
+        final ArrayList<ObjectAnimator> anims = mAutoCancelList;
+        if (anims != null) {
+            mAutoCancelList = null;
+            anims.remove(this);
+            if (anims.isEmpty()) {
+                // A target that has been collected has already left the map
+                final Object target = getTarget();
+                final WeakHashMap<Object, ArrayList<ObjectAnimator>> autoCancelAnims =
+                        sAutoCancelAnims.get();
+                if (target != null && autoCancelAnims.get(target) == anims) {
+                    autoCancelAnims.remove(target);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns how many of the properties of the given animation are either also animated by
+     * this one or have already been taken over by another.
+     */
+    private int countSharedProperties(ObjectAnimator anim) {
+        final PropertyValuesHolder[] values = anim.mValues;
+        if (values == null) {
+            return 0;
+        }
+        final boolean[] suppressed = anim.mSuppressedValues;
+        int numShared = 0;
+        int numValues = values.length;
+        for (int i = 0; i < numValues; ++i) {
+            if ((suppressed != null && suppressed[i])
+                    || mValuesMap.containsKey(values[i].getPropertyName())) {
+                ++numShared;
+            }
+        }
+        return numShared;
+    }
+
+    /**
+     * Stops setting the properties with the given names for the rest of the current run,
+     * leaving them where they are while the other properties carry on.
+     *
+     * @param propertyNames The properties that are taken over, as the keys of a map.
+     */
+    private void suppressValues(Map<String, ?> propertyNames) {
+        final PropertyValuesHolder[] values = mValues;
+        int numValues = values.length;
+        if (mSuppressedValues == null) {
+            mSuppressedValues = new boolean[numValues];
+        }
+        for (int i = 0; i < numValues; ++i) {
+            if (propertyNames.containsKey(values[i].getPropertyName())) {
+                mSuppressedValues[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Resolves the accessors and evaluators of this animation for the class of the given
+     * target, without holding on to the target. Used by AnimatorTemplate.
+     */
+    void initForTarget(Object target) {
+        mTarget = target;
+        mInitialized = false;
+        // Setters found for a previous class of target do not apply to this one
+        int numValues = mValues.length;
+        for (int i = 0; i < numValues; ++i) {
+            mValues[i].mSetter = null;
+        }
+        initAnimation();
+        mTarget = null;
+    }
+
+    /**
+     * Returns a copy of this animation playing on the given target, which shares everything
+     * but its playback state and current values with this one. This animation must have been
+     * set up with initForTarget() for a target of the same class. Used by AnimatorTemplate.
+     */
+    ObjectAnimator cloneForTarget(Object target) {
+        final ObjectAnimator anim = (ObjectAnimator) cloneInitialized();
+        anim.setTargetField(target);
+        anim.mAutoCancelList = null;
+        anim.mSuppressedValues = null;
+        if (target instanceof View) {
+            anim.resolveViewProperties();
+        }
         return anim;
     }
 
     @Override
     public String toString() {
         String returnVal = "ObjectAnimator@" + Integer.toHexString(hashCode()) + ", target " +
-            mTarget;
+            getTarget();
         if (mValues != null) {
             for (int i = 0; i < mValues.length; ++i) {
                 returnVal += "\n    " + mValues[i].toString();
@@ -16,16 +16,17 @@
 
 package com.nineoldandroids.animation;
 
+import android.graphics.Rect;
 import android.util.Log;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.nineoldandroids.util.FloatProperty;
 import com.nineoldandroids.util.IntProperty;
 import com.nineoldandroids.util.Property;
+import com.nineoldandroids.util.ReflectionCache;
+import com.nineoldandroids.view.ViewBounds;
 
 /**
  * This class holds information about a property and the values that that property
@@ -94,18 +95,6 @@ public class PropertyValuesHolder implements Cloneable {
     private static Class[] DOUBLE_VARIANTS = {double.class, Double.class, float.class, int.class,
             Float.class, Integer.class};
 
-    // These maps hold all property entries for a particular class. This map
-    // is used to speed up property/setter/getter lookups for a given class/property
-    // combination. No need to use reflection on the combination more than once.
-    private static final HashMap<Class, HashMap<String, Method>> sSetterPropertyMap =
-            new HashMap<Class, HashMap<String, Method>>();
-    private static final HashMap<Class, HashMap<String, Method>> sGetterPropertyMap =
-            new HashMap<Class, HashMap<String, Method>>();
-
-    // This lock is used to ensure that only one thread is accessing the property maps
-    // at a time.
-    final ReentrantReadWriteLock mPropertyMapLock = new ReentrantReadWriteLock();
-
     // Used to pass single value to varargs parameter in setter invocation
     final Object[] mTmpValueArray = new Object[1];
 
@@ -115,7 +104,7 @@ public class PropertyValuesHolder implements Cloneable {
      * but the system only knows about the primitive types int and float. Any other
      * type will need to set the evaluator to a custom evaluator for that type.
      */
-    private TypeEvaluator mEvaluator;
+    TypeEvaluator mEvaluator;
 
     /**
      * The value most recently calculated by calculateValue(). This is set during
@@ -124,6 +113,12 @@ public class PropertyValuesHolder implements Cloneable {
      */
     private Object mAnimatedValue;
 
+    /**
+     * The keyframe set this holder shares with the holders of other animators made from the
+     * same AnimatorTemplate, if any. A shared set is copied before it is modified.
+     */
+    private KeyframeSet mSharedKeyframeSet = null;
+
     /**
      * Internal utility constructor, used by the factory methods to set the property name.
      * @param propertyName The name of the property for this holder.
@@ -165,6 +160,34 @@ public class PropertyValuesHolder implements Cloneable {
         return new IntPropertyValuesHolder(property, values);
     }
 
+    /**
+     * Constructs and returns a PropertyValuesHolder with a given property name and
+     * set of ARGB color values. The colors are interpolated by {@link ArgbEvaluator} without
+     * boxing them; for interpolation in linear light, set a
+     * {@link ArgbEvaluator#ArgbEvaluator(boolean) linear} ArgbEvaluator on the result.
+     * @param propertyName The name of the property being animated.
+     * @param values The colors that the named property will animate between.
+     * @return PropertyValuesHolder The constructed PropertyValuesHolder object.
+     */
+    public static PropertyValuesHolder ofArgb(String propertyName, int... values) {
+        PropertyValuesHolder pvh = new IntPropertyValuesHolder(propertyName, values);
+        pvh.setEvaluator(ArgbEvaluator.getInstance());
+        return pvh;
+    }
+
+    /**
+     * Constructs and returns a PropertyValuesHolder with a given property and
+     * set of ARGB color values, as {@link #ofArgb(String, int...)} does.
+     * @param property The property being animated. Should not be null.
+     * @param values The colors that the property will animate between.
+     * @return PropertyValuesHolder The constructed PropertyValuesHolder object.
+     */
+    public static PropertyValuesHolder ofArgb(Property<?, Integer> property, int... values) {
+        PropertyValuesHolder pvh = new IntPropertyValuesHolder(property, values);
+        pvh.setEvaluator(ArgbEvaluator.getInstance());
+        return pvh;
+    }
+
     /**
      * Constructs and returns a PropertyValuesHolder with a given property name and
      * set of float values.
@@ -227,6 +250,38 @@ public class PropertyValuesHolder implements Cloneable {
         return pvh;
     }
 
+    /**
+     * Constructs and returns a PropertyValuesHolder that animates the bounds of a view, as
+     * given by {@link ViewBounds#BOUNDS}. All four edges are interpolated together and set
+     * in a single property call per frame, rather than through one holder per edge.
+     *
+     * <p>If there is only one value, it is assumed to be the end value of an animation, and
+     * the start value is read from the view when the animation starts.</p>
+     *
+     * @param values The bounds that the view will animate between.
+     * @return PropertyValuesHolder The constructed PropertyValuesHolder object.
+     */
+    public static PropertyValuesHolder ofBounds(Rect... values) {
+        return ofObject(ViewBounds.BOUNDS, new RectEvaluator(new Rect()), values);
+    }
+
+    /**
+     * Constructs and returns a PropertyValuesHolder that animates the top and bottom of a view
+     * together, as given by {@link ViewBounds#VERTICAL_BOUNDS}, leaving its left and right
+     * alone. This is the variant to use for views that grow or shrink within a list.
+     *
+     * @param startTop The top of the view at the start of the animation.
+     * @param startBottom The bottom of the view at the start of the animation.
+     * @param endTop The top of the view at the end of the animation.
+     * @param endBottom The bottom of the view at the end of the animation.
+     * @return PropertyValuesHolder The constructed PropertyValuesHolder object.
+     */
+    public static PropertyValuesHolder ofVerticalBounds(int startTop, int startBottom,
+            int endTop, int endBottom) {
+        return ofObject(ViewBounds.VERTICAL_BOUNDS, new RectEvaluator(new Rect()),
+                new Rect(0, startTop, 0, startBottom), new Rect(0, endTop, 0, endBottom));
+    }
+
     /**
      * Constructs and returns a PropertyValuesHolder object with the specified property name and set
      * of values. These values can be of any type, but the type should be consistent so that
@@ -377,27 +432,17 @@ public class PropertyValuesHolder implements Cloneable {
      * @return Method the method associated with mPropertyName.
      */
     private Method getPropertyFunction(Class targetClass, String prefix, Class valueType) {
-        // TODO: faster implementation...
+        // The methods found, and not found, are cached by ReflectionCache for each class and
+        // name, so that setting up the same property again is a few map lookups
         Method returnVal = null;
         String methodName = getMethodName(prefix, mPropertyName);
-        Class args[] = null;
         if (valueType == null) {
-            try {
-                returnVal = targetClass.getMethod(methodName, args);
-            } catch (NoSuchMethodException e) {
-                /* The native implementation uses JNI to do reflection, which allows access to private methods.
-                 * getDeclaredMethod(..) does not find superclass methods, so it's implemented as a fallback.
-                 */
-                try {
-                    returnVal = targetClass.getDeclaredMethod(methodName, args);
-                    returnVal.setAccessible(true);
-                } catch (NoSuchMethodException e2) {
-                    Log.e("PropertyValuesHolder",
-                            "Couldn't find no-arg method for property " + mPropertyName + ": " + e);
-                }
+            returnVal = ReflectionCache.getMethod(targetClass, methodName, null);
+            if (returnVal == null) {
+                Log.e("PropertyValuesHolder",
+                        "Couldn't find no-arg method for property " + mPropertyName);
             }
         } else {
-            args = new Class[1];
             Class typeVariants[];
             if (mValueType.equals(Float.class)) {
                 typeVariants = FLOAT_VARIANTS;
@@ -410,25 +455,11 @@ public class PropertyValuesHolder implements Cloneable {
                 typeVariants[0] = mValueType;
             }
             for (Class typeVariant : typeVariants) {
-                args[0] = typeVariant;
-                try {
-                    returnVal = targetClass.getMethod(methodName, args);
+                returnVal = ReflectionCache.getMethod(targetClass, methodName, typeVariant);
+                if (returnVal != null) {
                     // change the value type to suit
                     mValueType = typeVariant;
                     return returnVal;
-                } catch (NoSuchMethodException e) {
-                    /* The native implementation uses JNI to do reflection, which allows access to private methods.
-                     * getDeclaredMethod(..) does not find superclass methods, so it's implemented as a fallback.
-                     */
-                    try {
-                        returnVal = targetClass.getDeclaredMethod(methodName, args);
-                        returnVal.setAccessible(true);
-                        // change the value type to suit
-                        mValueType = typeVariant;
-                        return returnVal;
-                    } catch (NoSuchMethodException e2) {
-                        // Swallow the error and keep trying other variants
-                    }
                 }
             }
             // If we got here, then no appropriate function was found
@@ -440,57 +471,19 @@ public class PropertyValuesHolder implements Cloneable {
         return returnVal;
     }
 
-
-    /**
-     * Returns the setter or getter requested. This utility function checks whether the
-     * requested method exists in the propertyMapMap cache. If not, it calls another
-     * utility function to request the Method from the targetClass directly.
-     * @param targetClass The Class on which the requested method should exist.
-     * @param propertyMapMap The cache of setters/getters derived so far.
-     * @param prefix "set" or "get", for the setter or getter.
-     * @param valueType The type of parameter passed into the method (null for getter).
-     * @return Method the method associated with mPropertyName.
-     */
-    private Method setupSetterOrGetter(Class targetClass,
-            HashMap<Class, HashMap<String, Method>> propertyMapMap,
-            String prefix, Class valueType) {
-        Method setterOrGetter = null;
-        try {
-            // Have to lock property map prior to reading it, to guard against
-            // another thread putting something in there after we've checked it
-            // but before we've added an entry to it
-            mPropertyMapLock.writeLock().lock();
-            HashMap<String, Method> propertyMap = propertyMapMap.get(targetClass);
-            if (propertyMap != null) {
-                setterOrGetter = propertyMap.get(mPropertyName);
-            }
-            if (setterOrGetter == null) {
-                setterOrGetter = getPropertyFunction(targetClass, prefix, valueType);
-                if (propertyMap == null) {
-                    propertyMap = new HashMap<String, Method>();
-                    propertyMapMap.put(targetClass, propertyMap);
-                }
-                propertyMap.put(mPropertyName, setterOrGetter);
-            }
-        } finally {
-            mPropertyMapLock.writeLock().unlock();
-        }
-        return setterOrGetter;
-    }
-
     /**
      * Utility function to get the setter from targetClass
      * @param targetClass The Class on which the requested method should exist.
      */
     void setupSetter(Class targetClass) {
-        mSetter = setupSetterOrGetter(targetClass, sSetterPropertyMap, "set", mValueType);
+        mSetter = getPropertyFunction(targetClass, "set", mValueType);
     }
 
     /**
      * Utility function to get the getter from targetClass
      */
     private void setupGetter(Class targetClass) {
-        mGetter = setupSetterOrGetter(targetClass, sGetterPropertyMap, "get", null);
+        mGetter = getPropertyFunction(targetClass, "get", null);
     }
 
     /**
@@ -517,7 +510,7 @@ public class PropertyValuesHolder implements Cloneable {
             } catch (ClassCastException e) {
                 Log.e("PropertyValuesHolder","No such property (" + mProperty.getName() +
                         ") on target object " + target + ". Trying reflection instead");
-                mProperty = null;
+                setProperty(null);
             }
         }
         Class targetClass = target.getClass();
@@ -573,6 +566,7 @@ public class PropertyValuesHolder implements Cloneable {
      * @param target The object which holds the start values that should be set.
      */
     void setupStartValue(Object target) {
+        unshareKeyframes();
         setupValue(target, mKeyframeSet.mKeyframes.get(0));
     }
 
@@ -585,6 +579,7 @@ public class PropertyValuesHolder implements Cloneable {
      * @param target The object which holds the start values that should be set.
      */
     void setupEndValue(Object target) {
+        unshareKeyframes();
         setupValue(target, mKeyframeSet.mKeyframes.get(mKeyframeSet.mKeyframes.size() - 1));
     }
 
@@ -603,6 +598,36 @@ public class PropertyValuesHolder implements Cloneable {
         }
     }
 
+    /**
+     * Returns a copy of this holder for an animator made from an AnimatorTemplate. Unlike
+     * clone(), the copy shares the keyframes, evaluator and accessors of this holder, and only
+     * holds its own animated value.
+     */
+    PropertyValuesHolder cloneShared() {
+        try {
+            PropertyValuesHolder newPVH = (PropertyValuesHolder) super.clone();
+            newPVH.mSharedKeyframeSet = mKeyframeSet;
+            return newPVH;
+        } catch (CloneNotSupportedException e) {
+            // won't reach here
+            return null;
+        }
+    }
+
+    /**
+     * Gives this holder a copy of its own of the keyframe set that it shares with other
+     * holders, if any, before the keyframes or their evaluator are modified.
+     */
+    void unshareKeyframes() {
+        if (mKeyframeSet != null && mKeyframeSet == mSharedKeyframeSet) {
+            mKeyframeSet = mKeyframeSet.clone();
+            if (mEvaluator != null) {
+                mKeyframeSet.setEvaluator(mEvaluator);
+            }
+        }
+        mSharedKeyframeSet = null;
+    }
+
     /**
      * Internal function to set the value on the target object, using the setter set up
      * earlier on this PropertyValuesHolder object. This function is called by ObjectAnimator
@@ -656,6 +681,7 @@ public class PropertyValuesHolder implements Cloneable {
      * @param evaluator
      */
     public void setEvaluator(TypeEvaluator evaluator) {
+        unshareKeyframes();
         mEvaluator = evaluator;
         mKeyframeSet.setEvaluator(evaluator);
     }
@@ -670,6 +696,31 @@ public class PropertyValuesHolder implements Cloneable {
         mAnimatedValue = mKeyframeSet.getValue(fraction);
     }
 
+    /**
+     * Computes the value of this property at each of the given interpolated fractions, for
+     * use by ValueAnimator when it plays back from a baked sample table. Only the primitive
+     * int and float holders can be baked; this base implementation returns null.
+     *
+     * @param fractions The interpolated fractions to sample at.
+     * @return A float[] or int[] holding one value per fraction, or null if this holder
+     * cannot be baked.
+     */
+    Object bakeValues(float[] fractions) {
+        return null;
+    }
+
+    /**
+     * Sets the current animated value from a table previously returned by bakeValues(),
+     * in place of calculateValue().
+     *
+     * @param table The table returned by bakeValues().
+     * @param index The sample at or before the current time.
+     * @param offset How far the current time is from that sample towards the next one, from
+     * 0 up to but excluding 1. It is 0 at the last sample.
+     */
+    void setBakedValue(Object table, int index, float offset) {
+    }
+
     /**
      * Sets the name of the property that will be animated. This name is used to derive
      * a setter function that will be called to set animated values.
@@ -797,11 +848,50 @@ public class PropertyValuesHolder implements Cloneable {
             mIntKeyframeSet = (IntKeyframeSet) mKeyframeSet;
         }
 
+        @Override
+        public void setProperty(Property property) {
+            super.setProperty(property);
+            mIntProperty = (property instanceof IntProperty) ? (IntProperty) property : null;
+        }
+
         @Override
         void calculateValue(float fraction) {
             mIntAnimatedValue = mIntKeyframeSet.getIntValue(fraction);
         }
 
+        @Override
+        Object bakeValues(float[] fractions) {
+            int numSamples = fractions.length;
+            int[] values = new int[numSamples];
+            // Sample a fresh copy, since the keyframe set caches its two-keyframe endpoints
+            // on first use and the start/end values may still be set up from the target
+            IntKeyframeSet keyframeSet = mIntKeyframeSet.clone();
+            if (mEvaluator != null) {
+                keyframeSet.setEvaluator(mEvaluator);
+            }
+            for (int i = 0; i < numSamples; ++i) {
+                values[i] = keyframeSet.getIntValue(fractions[i]);
+            }
+            return values;
+        }
+
+        @Override
+        void setBakedValue(Object table, int index, float offset) {
+            final int[] values = (int[]) table;
+            final int value = values[index];
+            if (offset == 0f) {
+                mIntAnimatedValue = value;
+            } else if (mEvaluator == null) {
+                mIntAnimatedValue = value + (int) (offset * (values[index + 1] - value));
+            } else if (mEvaluator.getClass() == ArgbEvaluator.class) {
+                mIntAnimatedValue = ((ArgbEvaluator) mEvaluator).evaluate(offset, value,
+                        values[index + 1]);
+            } else {
+                // Other evaluators need not be linear between samples; take the nearest one
+                mIntAnimatedValue = offset < 0.5f ? value : values[index + 1];
+            }
+        }
+
         @Override
         Object getAnimatedValue() {
             return mIntAnimatedValue;
@@ -814,6 +904,12 @@ public class PropertyValuesHolder implements Cloneable {
             return newPVH;
         }
 
+        @Override
+        void unshareKeyframes() {
+            super.unshareKeyframes();
+            mIntKeyframeSet = (IntKeyframeSet) mKeyframeSet;
+        }
+
         /**
          * Internal function to set the value on the target object, using the setter set up
          * earlier on this PropertyValuesHolder object. This function is called by ObjectAnimator
@@ -933,11 +1029,42 @@ public class PropertyValuesHolder implements Cloneable {
             mFloatKeyframeSet = (FloatKeyframeSet) mKeyframeSet;
         }
 
+        @Override
+        public void setProperty(Property property) {
+            super.setProperty(property);
+            mFloatProperty = (property instanceof FloatProperty) ? (FloatProperty) property : null;
+        }
+
         @Override
         void calculateValue(float fraction) {
             mFloatAnimatedValue = mFloatKeyframeSet.getFloatValue(fraction);
         }
 
+        @Override
+        Object bakeValues(float[] fractions) {
+            int numSamples = fractions.length;
+            float[] values = new float[numSamples];
+            // Sample a fresh copy, since the keyframe set caches its two-keyframe endpoints
+            // on first use and the start/end values may still be set up from the target
+            FloatKeyframeSet keyframeSet = mFloatKeyframeSet.clone();
+            if (mEvaluator != null) {
+                keyframeSet.setEvaluator(mEvaluator);
+            }
+            for (int i = 0; i < numSamples; ++i) {
+                values[i] = keyframeSet.getFloatValue(fractions[i]);
+            }
+            return values;
+        }
+
+        @Override
+        void setBakedValue(Object table, int index, float offset) {
+            final float[] values = (float[]) table;
+            final float value = values[index];
+            mFloatAnimatedValue = offset > 0f
+                    ? value + offset * (values[index + 1] - value)
+                    : value;
+        }
+
         @Override
         Object getAnimatedValue() {
             return mFloatAnimatedValue;
@@ -950,6 +1077,12 @@ public class PropertyValuesHolder implements Cloneable {
             return newPVH;
         }
 
+        @Override
+        void unshareKeyframes() {
+            super.unshareKeyframes();
+            mFloatKeyframeSet = (FloatKeyframeSet) mKeyframeSet;
+        }
+
         /**
          * Internal function to set the value on the target object, using the setter set up
          * earlier on this PropertyValuesHolder object. This function is called by ObjectAnimator
@@ -0,0 +1,55 @@
+package com.nineoldandroids.animation;
+
+import android.graphics.Rect;
+
+/**
+ * This evaluator can be used to perform type interpolation between <code>Rect</code> values.
+ */
+public class RectEvaluator implements TypeEvaluator<Rect> {
+
+    /**
+     * When non-null, the Rect returned by every call to evaluate().
+     */
+    private Rect mRect;
+
+    /**
+     * Constructs a RectEvaluator that returns a new Rect on every evaluate call.
+     */
+    public RectEvaluator() {
+    }
+
+    /**
+     * Constructs a RectEvaluator that modifies and returns <code>reuseRect</code> in
+     * {@link #evaluate(float, Rect, Rect)}, so that no Rect is allocated per frame. The value
+     * returned is only valid until the next call; this is safe for an animator that hands it
+     * straight to its target, but not for values held on to by listeners.
+     *
+     * @param reuseRect A Rect to be modified and returned by evaluate.
+     */
+    public RectEvaluator(Rect reuseRect) {
+        mRect = reuseRect;
+    }
+
+    /**
+     * This function returns the result of linearly interpolating each edge of the start and
+     * end Rects, with <code>fraction</code> representing the proportion between the start and
+     * end values.
+     *
+     * @param fraction   The fraction from the starting to the ending values
+     * @param startValue The start Rect
+     * @param endValue   The end Rect
+     * @return A Rect whose edges are a linear interpolation between those of the start and end
+     *         values, given the <code>fraction</code> parameter.
+     */
+    public Rect evaluate(float fraction, Rect startValue, Rect endValue) {
+        int left = startValue.left + (int) ((endValue.left - startValue.left) * fraction);
+        int top = startValue.top + (int) ((endValue.top - startValue.top) * fraction);
+        int right = startValue.right + (int) ((endValue.right - startValue.right) * fraction);
+        int bottom = startValue.bottom + (int) ((endValue.bottom - startValue.bottom) * fraction);
+        if (mRect == null) {
+            return new Rect(left, top, right, bottom);
+        }
+        mRect.set(left, top, right, bottom);
+        return mRect;
+    }
+}
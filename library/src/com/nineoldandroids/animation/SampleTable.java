@@ -0,0 +1,222 @@
+package com.nineoldandroids.animation;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.view.animation.Interpolator;
+
+/**
+ * A per-frame table of precomputed values for a fixed-duration {@link ValueAnimator}. The
+ * table folds the time interpolator, keyframe search, per-keyframe interpolators and the
+ * evaluator into one array per property, so that playback is a lookup of the two samples
+ * around the current time and a linear interpolation between them.
+ *
+ * <p>Tables are immutable once built and are shared between animators whose duration,
+ * frame delay, interpolator and keyframes are identical, through a small LRU cache. The
+ * cache holds interpolators and evaluators weakly, so that one declared in an Activity
+ * does not keep it alive.</p>
+ */
+final class SampleTable {
+
+    /**
+     * The largest number of samples that will be baked for a single animation. Longer
+     * animations are not baked and fall back to evaluating every frame.
+     */
+    static final int MAX_SAMPLES = 1024;
+
+    // The number of tables kept around for reuse by identical animators
+    private static final int CACHE_SIZE = 32;
+
+    private static final LinkedHashMap<Key, SampleTable> sCache =
+            new LinkedHashMap<Key, SampleTable>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, SampleTable> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    /**
+     * The interpolated fraction at each sample, reported by getAnimatedFraction().
+     */
+    final float[] mFractions;
+
+    /**
+     * One table per PropertyValuesHolder, either a float[] or an int[].
+     */
+    final Object[] mValues;
+
+    private final int mLastIndex;
+
+    private SampleTable(float[] fractions, Object[] values) {
+        mFractions = fractions;
+        mValues = values;
+        mLastIndex = fractions.length - 1;
+    }
+
+    /**
+     * Returns the position of the given elapsed fraction in the table, from 0 to the index of
+     * the last sample. Its integral part is the sample before the fraction and its fractional
+     * part how far the fraction is towards the next one.
+     */
+    float positionOf(float fraction) {
+        if (fraction <= 0f) {
+            return 0f;
+        }
+        if (fraction >= 1f) {
+            return mLastIndex;
+        }
+        return fraction * mLastIndex;
+    }
+
+    /**
+     * Returns a baked table for the given animation parameters, reusing a cached one if an
+     * identical animation has been baked before. Returns null if one of the holders cannot be
+     * baked or if the animation is too long to be worth baking.
+     */
+    static SampleTable obtain(long duration, long frameDelay, /*Time*/Interpolator interpolator,
+            PropertyValuesHolder[] values) {
+        if (values == null || values.length == 0) {
+            return null;
+        }
+        long numSamples = (frameDelay > 0 ? duration / frameDelay : duration) + 1;
+        if (numSamples > MAX_SAMPLES) {
+            return null;
+        }
+        if (numSamples < 2) {
+            numSamples = 2;
+        }
+        Key key = Key.of(duration, frameDelay, interpolator, values);
+        if (key == null) {
+            return null;
+        }
+        synchronized (sCache) {
+            SampleTable table = sCache.get(key);
+            if (table != null) {
+                return table;
+            }
+        }
+        SampleTable table = bake((int) numSamples, interpolator, values);
+        if (table != null) {
+            synchronized (sCache) {
+                sCache.put(key, table);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Empties the cache of baked tables.
+     */
+    static void clearCache() {
+        synchronized (sCache) {
+            sCache.clear();
+        }
+    }
+
+    private static SampleTable bake(int numSamples, /*Time*/Interpolator interpolator,
+            PropertyValuesHolder[] values) {
+        final float[] fractions = new float[numSamples];
+        final int lastIndex = numSamples - 1;
+        for (int i = 0; i < numSamples; ++i) {
+            fractions[i] = interpolator.getInterpolation((float) i / lastIndex);
+        }
+        int numValues = values.length;
+        Object[] tables = new Object[numValues];
+        for (int i = 0; i < numValues; ++i) {
+            tables[i] = values[i].bakeValues(fractions);
+            if (tables[i] == null) {
+                return null;
+            }
+        }
+        return new SampleTable(fractions, tables);
+    }
+
+    /**
+     * Identifies a baked table. Interpolators and evaluators are compared by identity, which
+     * is what makes sharing the default interpolator across animators pay off. A key whose
+     * interpolator or evaluator has been collected matches nothing and is eventually evicted.
+     */
+    private static final class Key {
+        private final Object[] mParts;
+        private final int mHashCode;
+
+        private Key(Object[] parts) {
+            mParts = parts;
+            mHashCode = Arrays.hashCode(parts);
+        }
+
+        static Key of(long duration, long frameDelay, /*Time*/Interpolator interpolator,
+                PropertyValuesHolder[] values) {
+            ArrayList<Object> parts = new ArrayList<Object>();
+            parts.add(duration);
+            parts.add(frameDelay);
+            parts.add(new Identity(interpolator));
+            int numValues = values.length;
+            for (int i = 0; i < numValues; ++i) {
+                PropertyValuesHolder pvh = values[i];
+                if (pvh.mKeyframeSet == null) {
+                    return null;
+                }
+                parts.add(pvh.getClass());
+                parts.add(new Identity(pvh.mEvaluator));
+                ArrayList<Keyframe> keyframes = pvh.mKeyframeSet.mKeyframes;
+                int numKeyframes = keyframes.size();
+                parts.add(numKeyframes);
+                for (int j = 0; j < numKeyframes; ++j) {
+                    Keyframe kf = keyframes.get(j);
+                    if (!kf.hasValue()) {
+                        return null;
+                    }
+                    parts.add(kf.getFraction());
+                    parts.add(kf.getValue());
+                    parts.add(new Identity(kf.getInterpolator()));
+                }
+            }
+            return new Key(parts.toArray());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(mParts, ((Key) o).mParts);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+
+    /**
+     * Weakly wraps an object so that it is compared by reference rather than by equals().
+     */
+    private static final class Identity {
+        private final WeakReference<Object> mObject;
+        private final int mHashCode;
+
+        Identity(Object object) {
+            mObject = object != null ? new WeakReference<Object>(object) : null;
+            mHashCode = System.identityHashCode(object);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Identity)) {
+                return false;
+            }
+            Identity other = (Identity) o;
+            if (mObject == null || other.mObject == null) {
+                return mObject == other.mObject;
+            }
+            Object object = mObject.get();
+            return object != null && object == other.mObject.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
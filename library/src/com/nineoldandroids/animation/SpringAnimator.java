@@ -0,0 +1,367 @@
+package com.nineoldandroids.animation;
+
+import com.nineoldandroids.util.FloatProperty;
+import com.nineoldandroids.util.Property;
+
+/**
+ * An animator that moves a value towards a final value as if pulled there by a damped spring,
+ * rather than over a fixed duration. The motion is defined by the stiffness of the spring and
+ * by its damping ratio, and the animation ends by itself once the value has come to rest.
+ *
+ * <p>Giving the animation a new final value while it runs, with
+ * {@link #animateToFinalValue(float)}, keeps the current value and velocity, so an interrupted
+ * transition, such as a row collapsing while it still expands, turns around smoothly instead
+ * of starting over.</p>
+ *
+ * <p>The value can be set on a target through a {@link Property}, read with
+ * {@link #getValue()} from an {@link ValueAnimator.AnimatorUpdateListener}, or both. Neither
+ * allocates on each frame, unless the property takes a boxed <code>Float</code> rather than
+ * being a {@link FloatProperty}.</p>
+ */
+public class SpringAnimator extends TimeAnimator {
+    /**
+     * A stiff spring, which reaches its final value quickly.
+     */
+    public static final float STIFFNESS_HIGH = 10000f;
+
+    /**
+     * The default stiffness.
+     */
+    public static final float STIFFNESS_MEDIUM = 1500f;
+
+    /**
+     * A soft spring, which reaches its final value slowly.
+     */
+    public static final float STIFFNESS_LOW = 200f;
+
+    /**
+     * The default damping ratio, for a spring that settles as fast as it can without
+     * overshooting its final value.
+     */
+    public static final float DAMPING_RATIO_NO_BOUNCY = 1f;
+
+    /**
+     * A damping ratio for a spring that overshoots its final value and bounces back a few
+     * times before settling.
+     */
+    public static final float DAMPING_RATIO_MEDIUM_BOUNCY = 0.5f;
+
+    /**
+     * A damping ratio for a spring that barely overshoots its final value.
+     */
+    public static final float DAMPING_RATIO_LOW_BOUNCY = 0.75f;
+
+    /**
+     * The default rest thresholds: the value is close enough to its final value once within
+     * half a unit, such as half a pixel, and slow enough once it would move less than that
+     * in a frame.
+     */
+    private static final float DEFAULT_VALUE_THRESHOLD = 0.5f;
+    private static final float DEFAULT_VELOCITY_THRESHOLD = DEFAULT_VALUE_THRESHOLD * 1000 / 16;
+
+    private Object mTarget;
+    private Property mProperty;
+
+    private float mStiffness = STIFFNESS_MEDIUM;
+    private float mDampingRatio = DAMPING_RATIO_NO_BOUNCY;
+    private float mValueThreshold = DEFAULT_VALUE_THRESHOLD;
+    private float mVelocityThreshold = DEFAULT_VELOCITY_THRESHOLD;
+
+    // The motion of the spring, derived from its stiffness and damping ratio when either changes
+    private boolean mSpringDirty = true;
+    private double mNaturalFreq;
+    private double mDampedFreq;
+    private double mGammaPlus;
+    private double mGammaMinus;
+
+    private float mValue;
+    private float mVelocity;
+    private float mFinalValue;
+
+    // Whether a start value has been given; if not, it is read from the target when started
+    private boolean mValueSet;
+
+    // Whether a velocity has been given since the last frame; if not, the animation starts at
+    // rest rather than with the velocity it last stopped at
+    private boolean mVelocitySet;
+
+    /**
+     * Creates a spring animation of a value that is not set on any target, to be read from
+     * {@link #getValue()} on every update.
+     */
+    public SpringAnimator() {
+    }
+
+    /**
+     * Creates a spring animation of a property of a target. Unless a start value is given with
+     * {@link #setValue(float)}, the animation starts from the value of the property.
+     *
+     * @param target The object whose property is to be animated.
+     * @param property The property being animated.
+     */
+    public <T> SpringAnimator(T target, Property<T, Float> property) {
+        if (property == null) {
+            throw new IllegalArgumentException("property must not be null");
+        }
+        mTarget = target;
+        mProperty = property;
+    }
+
+    /**
+     * Sets the stiffness of the spring. A stiffer spring pulls the value to its final value
+     * faster. The default is {@link #STIFFNESS_MEDIUM}.
+     *
+     * @param stiffness The stiffness, which must be positive.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public SpringAnimator setStiffness(float stiffness) {
+        if (!(stiffness > 0)) {
+            throw new IllegalArgumentException("Spring stiffness must be positive");
+        }
+        mStiffness = stiffness;
+        mSpringDirty = true;
+        return this;
+    }
+
+    public float getStiffness() {
+        return mStiffness;
+    }
+
+    /**
+     * Sets the damping ratio of the spring: how quickly its oscillations die down. At 1, the
+     * value settles as fast as it can without overshooting; below 1 it bounces around its
+     * final value before settling, and above 1 it creeps up to the final value more slowly.
+     * The default is {@link #DAMPING_RATIO_NO_BOUNCY}.
+     *
+     * @param dampingRatio The damping ratio, which must not be negative.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public SpringAnimator setDampingRatio(float dampingRatio) {
+        if (!(dampingRatio >= 0)) {
+            throw new IllegalArgumentException("Damping ratio must not be negative");
+        }
+        mDampingRatio = dampingRatio;
+        mSpringDirty = true;
+        return this;
+    }
+
+    public float getDampingRatio() {
+        return mDampingRatio;
+    }
+
+    /**
+     * Sets how close to its final value, and how slow, the value must be for the spring to
+     * be considered at rest, at which point the value is set to its final value and the
+     * animation ends. The defaults suit values in pixels: within half a pixel, and moving
+     * less than half a pixel per frame.
+     *
+     * @param valueThreshold The largest distance from the final value at rest.
+     * @param velocityThreshold The largest speed at rest, in units per second.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public SpringAnimator setRestThresholds(float valueThreshold, float velocityThreshold) {
+        if (!(valueThreshold > 0) || !(velocityThreshold > 0)) {
+            throw new IllegalArgumentException("Rest thresholds must be positive");
+        }
+        mValueThreshold = valueThreshold;
+        mVelocityThreshold = velocityThreshold;
+        return this;
+    }
+
+    /**
+     * Sets the current value, from which the animation starts, or jumps if it is running.
+     *
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public SpringAnimator setValue(float value) {
+        mValue = value;
+        mValueSet = true;
+        return this;
+    }
+
+    /**
+     * Returns the current value of the animation.
+     */
+    public float getValue() {
+        return mValue;
+    }
+
+    /**
+     * Sets the current velocity, such as that of a fling the animation takes over from. Unless
+     * it is set, an animation starts at rest, whatever velocity it last stopped at.
+     *
+     * @param velocity The velocity, in units per second.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public SpringAnimator setVelocity(float velocity) {
+        mVelocity = velocity;
+        mVelocitySet = true;
+        return this;
+    }
+
+    /**
+     * Returns the current velocity of the animation, in units per second.
+     */
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    /**
+     * Sets the value that the spring pulls towards. Changing it while the animation runs
+     * keeps the current value and velocity.
+     *
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public SpringAnimator setFinalValue(float finalValue) {
+        mFinalValue = finalValue;
+        return this;
+    }
+
+    public float getFinalValue() {
+        return mFinalValue;
+    }
+
+    /**
+     * Sets the value that the spring pulls towards and starts the animation if it is not
+     * running. If it is, it carries on from its current value and velocity towards the new
+     * final value.
+     */
+    public void animateToFinalValue(float finalValue) {
+        mFinalValue = finalValue;
+        if (!isStarted()) {
+            start();
+        }
+    }
+
+    /**
+     * Returns the current value of the animation as a <code>Float</code>;
+     * {@link #getValue()} returns it without boxing.
+     */
+    @Override
+    public Object getAnimatedValue() {
+        return mValue;
+    }
+
+    @Override
+    void onStarted() {
+        super.onStarted();
+        if (!mValueSet && mProperty != null) {
+            Object target = mTarget;
+            mValue = (Float) mProperty.get(target);
+        }
+        mValueSet = true;
+    }
+
+    @Override
+    void onStopped() {
+        super.onStopped();
+        // The next start reads the property again, as it may have been changed meanwhile, and
+        // starts at rest unless a velocity was given since the last frame, such as by a
+        // listener's onAnimationCancel()
+        mValueSet = false;
+        if (!mVelocitySet) {
+            mVelocity = 0;
+        }
+    }
+
+    @Override
+    boolean animateTime(long totalTime, long deltaTime) {
+        boolean atRest = step(deltaTime / 1000.0);
+        mVelocitySet = false;
+        if (mProperty != null) {
+            setPropertyValue(mValue);
+        }
+        notifyUpdateListeners();
+        super.animateTime(totalTime, deltaTime);
+        return atRest;
+    }
+
+    /**
+     * Only called by {@link #end()}, since frames go through {@link #animateTime(long, long)}:
+     * the spring jumps to rest at its final value.
+     */
+    @Override
+    void animateValue(float fraction) {
+        mValue = mFinalValue;
+        mVelocity = 0;
+        mVelocitySet = false;
+        if (mProperty != null) {
+            setPropertyValue(mValue);
+        }
+        notifyUpdateListeners();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void setPropertyValue(float value) {
+        if (mProperty instanceof FloatProperty) {
+            ((FloatProperty) mProperty).setValue(mTarget, value);
+        } else {
+            mProperty.set(mTarget, value);
+        }
+    }
+
+    /**
+     * Advances the spring by the given time, using the exact solution of its motion from the
+     * current value and velocity, which stays stable however long the time between frames.
+     *
+     * @param deltaT The time to advance by, in seconds.
+     * @return Whether the spring has come to rest, in which case the value has been set to
+     * the final value.
+     */
+    private boolean step(double deltaT) {
+        if (mSpringDirty) {
+            mNaturalFreq = Math.sqrt(mStiffness);
+            double ratio = mDampingRatio;
+            if (ratio > 1) {
+                double root = mNaturalFreq * Math.sqrt(ratio * ratio - 1);
+                mGammaPlus = -ratio * mNaturalFreq + root;
+                mGammaMinus = -ratio * mNaturalFreq - root;
+            } else if (ratio < 1) {
+                mDampedFreq = mNaturalFreq * Math.sqrt(1 - ratio * ratio);
+            }
+            mSpringDirty = false;
+        }
+
+        final double ratio = mDampingRatio;
+        final double naturalFreq = mNaturalFreq;
+        final double x0 = mValue - mFinalValue;
+        final double v0 = mVelocity;
+        double x;
+        double v;
+        if (ratio > 1) {
+            // Overdamped
+            final double gammaPlus = mGammaPlus;
+            final double gammaMinus = mGammaMinus;
+            double coeffB = (gammaMinus * x0 - v0) / (gammaMinus - gammaPlus);
+            double coeffA = x0 - coeffB;
+            double expMinus = Math.exp(gammaMinus * deltaT);
+            double expPlus = Math.exp(gammaPlus * deltaT);
+            x = coeffA * expMinus + coeffB * expPlus;
+            v = coeffA * gammaMinus * expMinus + coeffB * gammaPlus * expPlus;
+        } else if (ratio == 1) {
+            // Critically damped
+            double coeffB = v0 + naturalFreq * x0;
+            double decay = Math.exp(-naturalFreq * deltaT);
+            x = (x0 + coeffB * deltaT) * decay;
+            v = x * -naturalFreq + coeffB * decay;
+        } else {
+            // Underdamped
+            final double dampedFreq = mDampedFreq;
+            double sinCoeff = (ratio * naturalFreq * x0 + v0) / dampedFreq;
+            double decay = Math.exp(-ratio * naturalFreq * deltaT);
+            double cos = Math.cos(dampedFreq * deltaT);
+            double sin = Math.sin(dampedFreq * deltaT);
+            x = decay * (x0 * cos + sinCoeff * sin);
+            v = x * -naturalFreq * ratio + decay * dampedFreq * (sinCoeff * cos - x0 * sin);
+        }
+
+        if (Math.abs(x) < mValueThreshold && Math.abs(v) < mVelocityThreshold) {
+            mValue = mFinalValue;
+            mVelocity = 0;
+            return true;
+        }
+        mValue = (float) (mFinalValue + x);
+        mVelocity = (float) v;
+        return false;
+    }
+}
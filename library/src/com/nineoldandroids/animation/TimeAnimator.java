@@ -26,10 +26,21 @@ public class TimeAnimator extends ValueAnimator {
                 mSeekTime = -1;
             }
         }
+        long totalTime = currentTime - mStartTime;
+        long deltaTime = (mPreviousTime < 0) ? 0 : (currentTime - mPreviousTime);
+        mPreviousTime = currentTime;
+        return animateTime(totalTime, deltaTime);
+    }
+
+    /**
+     * Processes a frame of the animation, given the time since it started and the time since
+     * the previous frame, both in milliseconds. The listener is notified here, so subclasses
+     * that act on every frame can do so before or after it.
+     *
+     * @return true if the animation is done, which a TimeAnimator never is on its own.
+     */
+    boolean animateTime(long totalTime, long deltaTime) {
         if (mListener != null) {
-            long totalTime = currentTime - mStartTime;
-            long deltaTime = (mPreviousTime < 0) ? 0 : (currentTime - mPreviousTime);
-            mPreviousTime = currentTime;
             mListener.onTimeUpdate(this, totalTime, deltaTime);
         }
         return false;
@@ -45,6 +56,31 @@ public class TimeAnimator extends ValueAnimator {
         mListener = listener;
     }
 
+    @Override
+    long getTotalDuration() {
+        return DURATION_INFINITE;
+    }
+
+    @Override
+    void onStarted() {
+        super.onStarted();
+        // The first frame after starting again is also the first one for the listener
+        mPreviousTime = -1;
+    }
+
+    @Override
+    void startFromTimeline(boolean inReverse) {
+        super.startFromTimeline(inReverse);
+        mPreviousTime = -1;
+    }
+
+    @Override
+    boolean animateElapsed(long elapsed, boolean inReverse) {
+        long deltaTime = (mPreviousTime < 0) ? 0 : (elapsed - mPreviousTime);
+        mPreviousTime = elapsed;
+        return animateTime(elapsed, deltaTime);
+    }
+
     @Override
     void animateValue(float fraction) {
         // Noop
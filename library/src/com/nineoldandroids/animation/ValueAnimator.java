@@ -202,6 +202,12 @@ public class ValueAnimator extends Animator {
      */
     private boolean mStarted = false;
 
+    /**
+     * Counts the starts of this animation, so that ending it can tell whether one of its
+     * listeners has started it again.
+     */
+    private int mStartCount = 0;
+
     /**
      * Flag that denotes whether the animation is set up and ready to go. Used to
      * set up animation that has not yet been started.
@@ -239,6 +245,18 @@ public class ValueAnimator extends Animator {
      */
     private /*Time*/Interpolator mInterpolator = sDefaultInterpolator;
 
+    /**
+     * Whether this animation should be baked into a sample table when it is initialized.
+     */
+    private boolean mBaked = false;
+
+    /**
+     * The baked sample table being played back, or null if values are calculated on every
+     * frame. Only consulted while mInitialized is true, since any change to the values
+     * clears that flag.
+     */
+    private SampleTable mSampleTable;
+
     /**
      * The set of listeners to be sent events through the life of an animation.
      */
@@ -300,6 +318,21 @@ public class ValueAnimator extends Animator {
         return anim;
     }
 
+    /**
+     * Constructs and returns a ValueAnimator that animates between ARGB color values, which
+     * are interpolated by {@link ArgbEvaluator} without boxing them. A single value implies
+     * that that value is the one being animated to; there should typically be two or more.
+     *
+     * @param values A set of colors that the animation will animate between over time.
+     * @return A ValueAnimator object that is set up to animate between the given values.
+     */
+    public static ValueAnimator ofArgb(int... values) {
+        ValueAnimator anim = new ValueAnimator();
+        anim.setIntValues(values);
+        anim.setEvaluator(ArgbEvaluator.getInstance());
+        return anim;
+    }
+
     /**
      * Constructs and returns a ValueAnimator that animates between float values. A single
      * value implies that that value is the one being animated to. However, this is not typically
@@ -493,9 +526,49 @@ public class ValueAnimator extends Animator {
                 mValues[i].init();
             }
             mInitialized = true;
+            bakeSampleTable();
+        }
+    }
+
+    /**
+     * Builds (or fetches from the cache) the sample table for the current duration,
+     * interpolator and values, if this animation has been set to play back baked samples.
+     */
+    void bakeSampleTable() {
+        mSampleTable = mBaked ? SampleTable.obtain(mDuration, sFrameDelay, mInterpolator, mValues)
+                : null;
+    }
+
+    /**
+     * Sets whether this animation precomputes its values. When enabled, every property is
+     * sampled once per frame over the whole duration when the animation is initialized, and
+     * playback then reads the precomputed values instead of running the interpolator, the
+     * keyframes and the evaluator on each frame. Identical animations share their samples.
+     *
+     * <p>This only pays off for animations that are not changed while they run; changing the
+     * duration, interpolator, evaluator or values of a running animation drops back to
+     * calculating every frame. Only int and float values can be baked, and animations longer
+     * than about a thousand frames are never baked.</p>
+     *
+     * @param baked Whether the animation should play back precomputed values.
+     */
+    public void setBaked(boolean baked) {
+        mBaked = baked;
+        if (!baked) {
+            mSampleTable = null;
         }
     }
 
+    /**
+     * Returns whether this animation has been set to play back precomputed values.
+     *
+     * @return true if the animation is baked when it is initialized.
+     * @see #setBaked(boolean)
+     */
+    public boolean isBaked() {
+        return mBaked;
+    }
+
 
     /**
      * Sets the length of the animation. The default duration is 300 milliseconds.
@@ -512,6 +585,7 @@ public class ValueAnimator extends Animator {
                     duration);
         }
         mDuration = duration;
+        mSampleTable = null;
         return this;
     }
 
@@ -867,6 +941,7 @@ public class ValueAnimator extends Animator {
         } else {
             mInterpolator = new LinearInterpolator();
         }
+        mSampleTable = null;
     }
 
     /**
@@ -897,6 +972,7 @@ public class ValueAnimator extends Animator {
     public void setEvaluator(TypeEvaluator value) {
         if (value != null && mValues != null && mValues.length > 0) {
             mValues[0].setEvaluator(value);
+            mSampleTable = null;
         }
     }
 
@@ -917,6 +993,8 @@ public class ValueAnimator extends Animator {
         if (Looper.myLooper() == null) {
             throw new AndroidRuntimeException("Animators may only be run on Looper threads");
         }
+        onStarted();
+        ++mStartCount;
         mPlayingBackwards = playBackwards;
         mCurrentIteration = 0;
         mPlayingState = STOPPED;
@@ -1017,6 +1095,20 @@ public class ValueAnimator extends Animator {
         }
     }
 
+    /**
+     * Called when this animation is started, either on its own or from the timeline of an
+     * AnimatorSet, before its start delay.
+     */
+    void onStarted() {
+    }
+
+    /**
+     * Called when this animation stops, whether it ended or was canceled, before the listeners
+     * are notified.
+     */
+    void onStopped() {
+    }
+
     /**
      * Called internally to end an animation by removing it from the animations list. Must be
      * called on the UI thread.
@@ -1026,6 +1118,8 @@ public class ValueAnimator extends Animator {
         sPendingAnimations.get().remove(this);
         sDelayedAnims.get().remove(this);
         mPlayingState = STOPPED;
+        onStopped();
+        final int startCount = mStartCount;
         if (mRunning && mListeners != null) {
             ArrayList<AnimatorListener> tmpListeners =
                     (ArrayList<AnimatorListener>) mListeners.clone();
@@ -1034,8 +1128,11 @@ public class ValueAnimator extends Animator {
                 tmpListeners.get(i).onAnimationEnd(this);
             }
         }
-        mRunning = false;
-        mStarted = false;
+        // Unless a listener has started the animation again, which must leave it started
+        if (mStartCount == startCount) {
+            mRunning = false;
+            mStarted = false;
+        }
     }
 
     /**
@@ -1045,9 +1142,15 @@ public class ValueAnimator extends Animator {
     private void startAnimation() {
         initAnimation();
         sAnimations.get().add(this);
-        if (mStartDelay > 0 && mListeners != null) {
+        if (mStartDelay > 0) {
             // Listeners were already notified in start() if startDelay is 0; this is
             // just for delayed animations
+            notifyStartListeners();
+        }
+    }
+
+    private void notifyStartListeners() {
+        if (mListeners != null) {
             ArrayList<AnimatorListener> tmpListeners =
                     (ArrayList<AnimatorListener>) mListeners.clone();
             int numListeners = tmpListeners.size();
@@ -1143,6 +1246,123 @@ public class ValueAnimator extends Animator {
         return done;
     }
 
+    @Override
+    long getTotalDuration() {
+        if (mRepeatCount == INFINITE) {
+            return DURATION_INFINITE;
+        }
+        return mStartDelay + mDuration * (mRepeatCount + 1);
+    }
+
+    @Override
+    void startFromTimeline(boolean inReverse) {
+        onStarted();
+        ++mStartCount;
+        mPlayingBackwards = false;
+        // Played backwards, the animation starts from its last iteration
+        mCurrentIteration = (inReverse && mRepeatCount > 0) ? mRepeatCount : 0;
+        // Not running until the start delay is over, but cancel() must still reset the state
+        mPlayingState = SEEKED;
+        mStarted = true;
+        mRunning = false;
+    }
+
+    /**
+     * Sets this animation to the given point of its playback on behalf of an AnimatorSet,
+     * which takes the place of the timing handler. The start delay, repetitions and end of
+     * the animation are derived from the play time alone, sending out the same events as
+     * when the animation runs on its own. When the set plays backwards the animation starts
+     * from its last iteration and ends once the play time is back at its start delay.
+     */
+    @Override
+    boolean animateFromTimeline(long playTime, boolean inReverse) {
+        if (mPlayingState == STOPPED) {
+            // Canceled or ended directly while being pulsed by the set
+            return true;
+        }
+        if (playTime < mStartDelay && !inReverse) {
+            return false;
+        }
+        if (!mRunning) {
+            initAnimation();
+            mPlayingState = RUNNING;
+            mRunning = true;
+            notifyStartListeners();
+        }
+        boolean done = animateElapsed(Math.max(0, playTime - mStartDelay), inReverse);
+        if (done) {
+            endAnimation();
+        }
+        return done;
+    }
+
+    /**
+     * Processes a frame of an animation driven by an AnimatorSet, once its start delay is over.
+     *
+     * @param elapsed The time, in milliseconds, since the end of the start delay.
+     * @param inReverse Whether the set driving this animation is playing backwards.
+     * @return true if the animation has played all of its repetitions, or has played back to
+     * its start when in reverse.
+     */
+    boolean animateElapsed(long elapsed, boolean inReverse) {
+        boolean done;
+        if (inReverse) {
+            done = elapsed <= 0;
+        } else {
+            done = mRepeatCount != INFINITE && elapsed >= mDuration * (mRepeatCount + 1);
+        }
+        int iteration = iterationAt(elapsed);
+        if (iteration != mCurrentIteration && mListeners != null) {
+            int numListeners = mListeners.size();
+            for (int i = 0; i < numListeners; ++i) {
+                mListeners.get(i).onAnimationRepeat(this);
+            }
+        }
+        setElapsedValue(elapsed, iteration);
+        return done;
+    }
+
+    @Override
+    void seekFromTimeline(long playTime) {
+        initAnimation();
+        long elapsed = Math.max(0, playTime - mStartDelay);
+        setElapsedValue(elapsed, iterationAt(elapsed));
+    }
+
+    /**
+     * Returns the iteration that the given time since the end of the start delay falls in,
+     * clamped to the last one.
+     */
+    private int iterationAt(long elapsed) {
+        if (mDuration <= 0) {
+            return mCurrentIteration;
+        }
+        int iteration = (int) (elapsed / mDuration);
+        if (mRepeatCount != INFINITE && iteration > mRepeatCount) {
+            iteration = mRepeatCount;
+        }
+        return iteration;
+    }
+
+    private void setElapsedValue(long elapsed, int iteration) {
+        float fraction = mDuration > 0 ?
+                Math.min(1f, (float) (elapsed - iteration * mDuration) / mDuration) : 1f;
+        mCurrentIteration = iteration;
+        mPlayingBackwards = mRepeatMode == REVERSE && (iteration & 0x01) == 1;
+        animateValue(mPlayingBackwards ? 1f - fraction : fraction);
+    }
+
+    @Override
+    void endFromTimeline() {
+        initAnimation();
+        if (mRepeatCount > 0 && (mRepeatCount & 0x01) == 1) {
+            animateValue(0f);
+        } else {
+            animateValue(1f);
+        }
+        endAnimation();
+    }
+
     /**
      * Returns the current animation fraction, which is the elapsed/interpolated fraction used in
      * the most recent frame update on the animation.
@@ -1166,12 +1386,34 @@ public class ValueAnimator extends Animator {
      * @param fraction The elapsed fraction of the animation.
      */
     void animateValue(float fraction) {
-        fraction = mInterpolator.getInterpolation(fraction);
-        mCurrentFraction = fraction;
+        final SampleTable table = mInitialized ? mSampleTable : null;
         int numValues = mValues.length;
-        for (int i = 0; i < numValues; ++i) {
-            mValues[i].calculateValue(fraction);
+        if (table != null) {
+            final float position = table.positionOf(fraction);
+            final int index = (int) position;
+            final float offset = position - index;
+            final float[] fractions = table.mFractions;
+            mCurrentFraction = offset > 0f
+                    ? fractions[index] + offset * (fractions[index + 1] - fractions[index])
+                    : fractions[index];
+            final Object[] tables = table.mValues;
+            for (int i = 0; i < numValues; ++i) {
+                mValues[i].setBakedValue(tables[i], index, offset);
+            }
+        } else {
+            fraction = mInterpolator.getInterpolation(fraction);
+            mCurrentFraction = fraction;
+            for (int i = 0; i < numValues; ++i) {
+                mValues[i].calculateValue(fraction);
+            }
         }
+        notifyUpdateListeners();
+    }
+
+    /**
+     * Sends an update event to every AnimatorUpdateListener.
+     */
+    void notifyUpdateListeners() {
         if (mUpdateListeners != null) {
             int numListeners = mUpdateListeners.size();
             for (int i = 0; i < numListeners; ++i) {
@@ -1182,6 +1424,47 @@ public class ValueAnimator extends Animator {
 
     @Override
     public ValueAnimator clone() {
+        final ValueAnimator anim = cloneState();
+        anim.mInitialized = false;
+        anim.mSampleTable = null;
+        PropertyValuesHolder[] oldValues = mValues;
+        if (oldValues != null) {
+            int numValues = oldValues.length;
+            anim.mValues = new PropertyValuesHolder[numValues];
+            anim.mValuesMap = new HashMap<String, PropertyValuesHolder>(numValues);
+            for (int i = 0; i < numValues; ++i) {
+                PropertyValuesHolder newValuesHolder = oldValues[i].clone();
+                anim.mValues[i] = newValuesHolder;
+                anim.mValuesMap.put(newValuesHolder.getPropertyName(), newValuesHolder);
+            }
+        }
+        return anim;
+    }
+
+    /**
+     * Returns a copy of this animation for AnimatorTemplate. Unlike clone(), the copy stays
+     * initialized and shares the keyframes, evaluators, accessors and baked sample table of
+     * this animation, so all it holds of its own is its playback state and current values.
+     * This animation must have been initialized.
+     */
+    ValueAnimator cloneInitialized() {
+        final ValueAnimator anim = cloneState();
+        PropertyValuesHolder[] oldValues = mValues;
+        int numValues = oldValues.length;
+        anim.mValues = new PropertyValuesHolder[numValues];
+        anim.mValuesMap = new HashMap<String, PropertyValuesHolder>(numValues);
+        for (int i = 0; i < numValues; ++i) {
+            PropertyValuesHolder newValuesHolder = oldValues[i].cloneShared();
+            anim.mValues[i] = newValuesHolder;
+            anim.mValuesMap.put(newValuesHolder.getPropertyName(), newValuesHolder);
+        }
+        return anim;
+    }
+
+    /**
+     * Copies this animation with its listeners, in a stopped state.
+     */
+    private ValueAnimator cloneState() {
         final ValueAnimator anim = (ValueAnimator) super.clone();
         if (mUpdateListeners != null) {
             ArrayList<AnimatorUpdateListener> oldListeners = mUpdateListeners;
@@ -1194,20 +1477,8 @@ public class ValueAnimator extends Animator {
         anim.mSeekTime = -1;
         anim.mPlayingBackwards = false;
         anim.mCurrentIteration = 0;
-        anim.mInitialized = false;
         anim.mPlayingState = STOPPED;
         anim.mStartedDelay = false;
-        PropertyValuesHolder[] oldValues = mValues;
-        if (oldValues != null) {
-            int numValues = oldValues.length;
-            anim.mValues = new PropertyValuesHolder[numValues];
-            anim.mValuesMap = new HashMap<String, PropertyValuesHolder>(numValues);
-            for (int i = 0; i < numValues; ++i) {
-                PropertyValuesHolder newValuesHolder = oldValues[i].clone();
-                anim.mValues[i] = newValuesHolder;
-                anim.mValuesMap.put(newValuesHolder.getPropertyName(), newValuesHolder);
-            }
-        }
         return anim;
     }
 
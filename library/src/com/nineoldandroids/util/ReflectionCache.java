@@ -0,0 +1,121 @@
+package com.nineoldandroids.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+
+/**
+ * Finds the methods and fields that properties are accessed through by reflection, and
+ * remembers what was found for each class and name, including what was not. The same
+ * accessors of the same few classes are looked up over and over, by
+ * {@link Property#of(Class, Class, String)} and by animations of named properties, and a
+ * failed lookup costs an exception each time it is repeated.
+ */
+public final class ReflectionCache {
+    // Stands for a method or field that does not exist, since null means not looked up yet
+    private static final Object NOT_FOUND = new Object();
+
+    private static final HashMap<Key, Object> sAccessors = new HashMap<Key, Object>();
+
+    // Reused to look up the map, which is only accessed with the lock on it held
+    private static final Key sLookupKey = new Key();
+
+    /**
+     * Returns the method of the given class with the given name and single parameter type, or
+     * no parameter if <code>parameterType</code> is null. Public methods, including inherited
+     * ones, are found first; then methods of any visibility declared by the class itself,
+     * which are made accessible, as the native implementation can call them.
+     *
+     * @return The method, or null if the class has no such method.
+     */
+    public static Method getMethod(Class<?> targetClass, String name, Class<?> parameterType) {
+        synchronized (sAccessors) {
+            Object accessor =
+                    sAccessors.get(sLookupKey.set(targetClass, name, parameterType, false));
+            if (accessor != null) {
+                return accessor != NOT_FOUND ? (Method) accessor : null;
+            }
+        }
+        Class<?>[] parameterTypes = parameterType != null ? new Class<?>[] { parameterType } : null;
+        Method method;
+        try {
+            method = targetClass.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            // getDeclaredMethod(..) does not find superclass methods, so it's a fallback
+            try {
+                method = targetClass.getDeclaredMethod(name, parameterTypes);
+                method.setAccessible(true);
+            } catch (NoSuchMethodException e2) {
+                method = null;
+            }
+        }
+        put(new Key().set(targetClass, name, parameterType, false), method);
+        return method;
+    }
+
+    /**
+     * Returns the public field of the given class, or of one of its superclasses, with the
+     * given name.
+     *
+     * @return The field, or null if the class has no such field.
+     */
+    public static Field getField(Class<?> targetClass, String name) {
+        synchronized (sAccessors) {
+            Object accessor = sAccessors.get(sLookupKey.set(targetClass, name, null, true));
+            if (accessor != null) {
+                return accessor != NOT_FOUND ? (Field) accessor : null;
+            }
+        }
+        Field field;
+        try {
+            field = targetClass.getField(name);
+        } catch (NoSuchFieldException e) {
+            field = null;
+        }
+        put(new Key().set(targetClass, name, null, true), field);
+        return field;
+    }
+
+    private static void put(Key key, Object accessor) {
+        synchronized (sAccessors) {
+            sAccessors.put(key, accessor != null ? accessor : NOT_FOUND);
+        }
+    }
+
+    private static final class Key {
+        Class<?> mClass;
+        String mName;
+        Class<?> mParameterType;
+        boolean mField;
+
+        Key set(Class<?> targetClass, String name, Class<?> parameterType, boolean field) {
+            mClass = targetClass;
+            mName = name;
+            mParameterType = parameterType;
+            mField = field;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return mClass == other.mClass && mName.equals(other.mName)
+                    && mParameterType == other.mParameterType && mField == other.mField;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mClass.hashCode() * 31 + mName.hashCode();
+            if (mParameterType != null) {
+                result = result * 31 + mParameterType.hashCode();
+            }
+            return mField ? ~result : result;
+        }
+    }
+
+    //No instances
+    private ReflectionCache() {}
+}
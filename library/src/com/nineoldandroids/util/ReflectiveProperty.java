@@ -43,51 +43,31 @@ class ReflectiveProperty<T, V> extends Property<T, V> {
      * the constructor will search for a field with that exact name.
      */
     public ReflectiveProperty(Class<T> propertyHolder, Class<V> valueType, String name) {
-         // TODO: cache reflection info for each new class/name pair
         super(valueType, name);
         char firstLetter = Character.toUpperCase(name.charAt(0));
         String theRest = name.substring(1);
         String capitalizedName = firstLetter + theRest;
-        String getterName = PREFIX_GET + capitalizedName;
-        try {
-            mGetter = propertyHolder.getMethod(getterName, (Class<?>[]) null);
-        } catch (NoSuchMethodException e) {
-            try {
-                /* The native implementation uses JNI to do reflection, which allows access to private methods.
-                 * getDeclaredMethod(..) does not find superclass methods, so it's implemented as a fallback.
-                 */
-                mGetter = propertyHolder.getDeclaredMethod(getterName, (Class<?>[]) null);
-                mGetter.setAccessible(true);
-            } catch (NoSuchMethodException e2) {
-                // getName() not available - try isName() instead
-                getterName = PREFIX_IS + capitalizedName;
-                try {
-                    mGetter = propertyHolder.getMethod(getterName, (Class<?>[]) null);
-                } catch (NoSuchMethodException e3) {
-                    try {
-                        /* The native implementation uses JNI to do reflection, which allows access to private methods.
-                         * getDeclaredMethod(..) does not find superclass methods, so it's implemented as a fallback.
-                         */
-                        mGetter = propertyHolder.getDeclaredMethod(getterName, (Class<?>[]) null);
-                        mGetter.setAccessible(true);
-                    } catch (NoSuchMethodException e4) {
-                        // Try public field instead
-                        try {
-                            mField = propertyHolder.getField(name);
-                            Class fieldType = mField.getType();
-                            if (!typesMatch(valueType, fieldType)) {
-                                throw new NoSuchPropertyException("Underlying type (" + fieldType + ") " +
-                                        "does not match Property type (" + valueType + ")");
-                            }
-                            return;
-                        } catch (NoSuchFieldException e5) {
-                            // no way to access property - throw appropriate exception
-                            throw new NoSuchPropertyException("No accessor method or field found for"
-                                    + " property with name " + name);
-                        }
-                    }
-                }
+        // The lookups are cached for each class and name, so that creating the same property
+        // again does not use reflection, or throw exceptions, for the accessors it lacks
+        mGetter = ReflectionCache.getMethod(propertyHolder, PREFIX_GET + capitalizedName, null);
+        if (mGetter == null) {
+            // getName() not available - try isName() instead
+            mGetter = ReflectionCache.getMethod(propertyHolder, PREFIX_IS + capitalizedName, null);
+        }
+        if (mGetter == null) {
+            // Try public field instead
+            mField = ReflectionCache.getField(propertyHolder, name);
+            if (mField == null) {
+                // no way to access property - throw appropriate exception
+                throw new NoSuchPropertyException("No accessor method or field found for"
+                        + " property with name " + name);
             }
+            Class fieldType = mField.getType();
+            if (!typesMatch(valueType, fieldType)) {
+                throw new NoSuchPropertyException("Underlying type (" + fieldType + ") " +
+                        "does not match Property type (" + valueType + ")");
+            }
+            return;
         }
         Class getterType = mGetter.getReturnType();
         // Check to make sure our getter type matches our valueType
@@ -95,15 +75,9 @@ class ReflectiveProperty<T, V> extends Property<T, V> {
             throw new NoSuchPropertyException("Underlying type (" + getterType + ") " +
                     "does not match Property type (" + valueType + ")");
         }
-        String setterName = PREFIX_SET + capitalizedName;
-        try {
-            // mSetter = propertyHolder.getMethod(setterName, getterType);
-            // The native implementation uses JNI to do reflection, which allows access to private methods.
-            mSetter = propertyHolder.getDeclaredMethod(setterName, getterType);
-            mSetter.setAccessible(true);
-        } catch (NoSuchMethodException ignored) {
-            // Okay to not have a setter - just a readonly property
-        }
+        // Okay to not have a setter - just a readonly property
+        mSetter = ReflectionCache.getMethod(propertyHolder, PREFIX_SET + capitalizedName,
+                getterType);
     }
 
     /**
@@ -0,0 +1,549 @@
+package com.nineoldandroids.view;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import android.view.View;
+import android.view.animation.Interpolator;
+import com.nineoldandroids.animation.Animator;
+import com.nineoldandroids.animation.ValueAnimator;
+import com.nineoldandroids.view.animation.AnimatorProxy;
+
+import static com.nineoldandroids.view.animation.AnimatorProxy.NEEDS_PROXY;
+
+/**
+ * Animates the same properties of a group of views together, such as the rows of a list, from
+ * one single ValueAnimator and one update callback, instead of one animator per view as
+ * {@link ViewPropertyAnimator} would run. Each view animates from its own current values,
+ * read when the animation starts: to the same value for methods such as {@link #alpha(float)},
+ * or by the same amount for methods such as {@link #translationYBy(float)}.
+ *
+ * <p>Unlike ViewPropertyAnimator, the animation is not started automatically; call
+ * {@link #start()} once the properties have been requested. Starting the group again cancels
+ * the animation in progress, and the views carry on from wherever it left them.</p>
+ *
+ * <p>The views are held weakly, and views that have been garbage collected are skipped.</p>
+ */
+public final class GroupViewPropertyAnimator {
+    /**
+     * Indices of the properties that can be animated, in the arrays of values below.
+     */
+    private static final int TRANSLATION_X = 0;
+    private static final int TRANSLATION_Y = 1;
+    private static final int SCALE_X       = 2;
+    private static final int SCALE_Y       = 3;
+    private static final int ROTATION      = 4;
+    private static final int ROTATION_X    = 5;
+    private static final int ROTATION_Y    = 6;
+    private static final int X             = 7;
+    private static final int Y             = 8;
+    private static final int ALPHA         = 9;
+    private static final int NUM_PROPERTIES = 10;
+
+    private final WeakReference<View>[] mViews;
+
+    /**
+     * The animator that runs from 0 to 1 for the whole group, and sets the values of every
+     * view on each of its updates.
+     */
+    private final ValueAnimator mAnimator = ValueAnimator.ofFloat(1.0f);
+
+    private Animator.AnimatorListener mListener = null;
+
+    /**
+     * The properties requested for the next start, as a mask of bits by property index,
+     * with their target value or offset.
+     */
+    private int mPendingMask = 0;
+    private int mPendingByMask = 0;
+    private final float[] mPendingValues = new float[NUM_PROPERTIES];
+
+    /**
+     * The properties being animated, and for each of them the start value and the change of
+     * every view, by view index. The arrays of a property are allocated the first time it is
+     * animated and reused after that.
+     */
+    private int mPropertyMask = 0;
+    private final float[][] mFromValues = new float[NUM_PROPERTIES][];
+    private final float[][] mDeltaValues = new float[NUM_PROPERTIES][];
+
+    private final ValueAnimator.AnimatorUpdateListener mUpdateListener =
+            new ValueAnimator.AnimatorUpdateListener() {
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            float fraction = animation.getAnimatedFraction();
+            int numViews = mViews.length;
+            for (int i = 0; i < numViews; ++i) {
+                View view = mViews[i].get();
+                if (view == null) {
+                    continue;
+                }
+                // Before Honeycomb, each view is invalidated once for all of its properties
+                AnimatorProxy proxy = NEEDS_PROXY ? AnimatorProxy.wrap(view) : null;
+                if (proxy != null) {
+                    proxy.beginUpdate();
+                }
+                try {
+                    for (int property = 0; property < NUM_PROPERTIES; ++property) {
+                        if ((mPropertyMask & (1 << property)) != 0) {
+                            setValue(view, property, mFromValues[property][i]
+                                    + fraction * mDeltaValues[property][i]);
+                        }
+                    }
+                } finally {
+                    if (proxy != null) {
+                        proxy.endUpdate();
+                    }
+                }
+            }
+        }
+    };
+
+    /**
+     * Returns a GroupViewPropertyAnimator that animates the given views together.
+     *
+     * @param views The views to animate.
+     */
+    public static GroupViewPropertyAnimator animate(View... views) {
+        return new GroupViewPropertyAnimator(views);
+    }
+
+    /**
+     * Returns a GroupViewPropertyAnimator that animates the given views together.
+     *
+     * @param views The views to animate.
+     */
+    public static GroupViewPropertyAnimator animate(List<? extends View> views) {
+        return new GroupViewPropertyAnimator(views.toArray(new View[views.size()]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private GroupViewPropertyAnimator(View[] views) {
+        int numViews = views.length;
+        mViews = new WeakReference[numViews];
+        for (int i = 0; i < numViews; ++i) {
+            mViews[i] = new WeakReference<View>(views[i]);
+        }
+        mAnimator.addUpdateListener(mUpdateListener);
+    }
+
+    /**
+     * Sets the duration of the animation. By default, the animator uses the default value
+     * for ValueAnimator.
+     *
+     * @param duration The length of the animation, in milliseconds. The value cannot be
+     * negative.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator setDuration(long duration) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Animators cannot have negative duration: " +
+                    duration);
+        }
+        mAnimator.setDuration(duration);
+        return this;
+    }
+
+    /**
+     * Returns the duration of the animation, in milliseconds.
+     */
+    public long getDuration() {
+        return mAnimator.getDuration();
+    }
+
+    /**
+     * Sets the delay between start() and the views starting to move.
+     *
+     * @param startDelay The delay of the animation, in milliseconds. The value cannot be
+     * negative.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator setStartDelay(long startDelay) {
+        if (startDelay < 0) {
+            throw new IllegalArgumentException("Animators cannot have negative duration: " +
+                    startDelay);
+        }
+        mAnimator.setStartDelay(startDelay);
+        return this;
+    }
+
+    /**
+     * Returns the start delay of the animation, in milliseconds.
+     */
+    public long getStartDelay() {
+        return mAnimator.getStartDelay();
+    }
+
+    /**
+     * Sets the interpolator of the animation, shared by all the views.
+     *
+     * @param interpolator The TimeInterpolator to be used for the animation.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator setInterpolator(/*Time*/Interpolator interpolator) {
+        mAnimator.setInterpolator(interpolator);
+        return this;
+    }
+
+    /**
+     * Sets a listener for the events of the animation, which is called once for the whole
+     * group.
+     *
+     * @param listener The listener to be called with AnimatorListener events, or null.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator setListener(Animator.AnimatorListener listener) {
+        if (mListener != null) {
+            mAnimator.removeListener(mListener);
+        }
+        mListener = listener;
+        if (listener != null) {
+            mAnimator.addListener(listener);
+        }
+        return this;
+    }
+
+    /**
+     * Starts animating the requested properties, reading the start value of each view now.
+     * Any animation of the group in progress is canceled first.
+     */
+    public void start() {
+        mAnimator.cancel();
+        int numViews = mViews.length;
+        int propertyMask = mPendingMask;
+        for (int property = 0; property < NUM_PROPERTIES; ++property) {
+            if ((propertyMask & (1 << property)) == 0) {
+                continue;
+            }
+            float[] fromValues = mFromValues[property];
+            float[] deltaValues = mDeltaValues[property];
+            if (fromValues == null) {
+                fromValues = mFromValues[property] = new float[numViews];
+                deltaValues = mDeltaValues[property] = new float[numViews];
+            }
+            boolean by = (mPendingByMask & (1 << property)) != 0;
+            float value = mPendingValues[property];
+            for (int i = 0; i < numViews; ++i) {
+                View view = mViews[i].get();
+                if (view == null) {
+                    continue;
+                }
+                float fromValue = getValue(view, property);
+                fromValues[i] = fromValue;
+                deltaValues[i] = by ? value : value - fromValue;
+            }
+        }
+        mPropertyMask = propertyMask;
+        mPendingMask = 0;
+        mPendingByMask = 0;
+        mAnimator.start();
+    }
+
+    /**
+     * Cancels the animation of the group, leaving the views where they are. Properties that
+     * have been requested but not started are discarded.
+     */
+    public void cancel() {
+        mAnimator.cancel();
+        mPendingMask = 0;
+        mPendingByMask = 0;
+    }
+
+    /**
+     * Returns whether the animation of the group has been started and not yet ended.
+     */
+    public boolean isStarted() {
+        return mAnimator.isStarted();
+    }
+
+    /**
+     * Animates the <code>x</code> property of every view to the given value.
+     *
+     * @param value The value to be animated to.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator x(float value) {
+        animateProperty(X, value, false);
+        return this;
+    }
+
+    /**
+     * Animates the <code>x</code> property of every view by the given amount.
+     *
+     * @param value The amount to be animated by, as an offset from each view's current value.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator xBy(float value) {
+        animateProperty(X, value, true);
+        return this;
+    }
+
+    /**
+     * Animates the <code>y</code> property of every view to the given value.
+     *
+     * @param value The value to be animated to.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator y(float value) {
+        animateProperty(Y, value, false);
+        return this;
+    }
+
+    /**
+     * Animates the <code>y</code> property of every view by the given amount.
+     *
+     * @param value The amount to be animated by, as an offset from each view's current value.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator yBy(float value) {
+        animateProperty(Y, value, true);
+        return this;
+    }
+
+    /**
+     * Animates the <code>rotation</code> property of every view to the given value.
+     *
+     * @param value The value to be animated to.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator rotation(float value) {
+        animateProperty(ROTATION, value, false);
+        return this;
+    }
+
+    /**
+     * Animates the <code>rotation</code> property of every view by the given amount.
+     *
+     * @param value The amount to be animated by, as an offset from each view's current value.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator rotationBy(float value) {
+        animateProperty(ROTATION, value, true);
+        return this;
+    }
+
+    /**
+     * Animates the <code>rotationX</code> property of every view to the given value.
+     *
+     * @param value The value to be animated to.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator rotationX(float value) {
+        animateProperty(ROTATION_X, value, false);
+        return this;
+    }
+
+    /**
+     * Animates the <code>rotationX</code> property of every view by the given amount.
+     *
+     * @param value The amount to be animated by, as an offset from each view's current value.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator rotationXBy(float value) {
+        animateProperty(ROTATION_X, value, true);
+        return this;
+    }
+
+    /**
+     * Animates the <code>rotationY</code> property of every view to the given value.
+     *
+     * @param value The value to be animated to.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator rotationY(float value) {
+        animateProperty(ROTATION_Y, value, false);
+        return this;
+    }
+
+    /**
+     * Animates the <code>rotationY</code> property of every view by the given amount.
+     *
+     * @param value The amount to be animated by, as an offset from each view's current value.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator rotationYBy(float value) {
+        animateProperty(ROTATION_Y, value, true);
+        return this;
+    }
+
+    /**
+     * Animates the <code>translationX</code> property of every view to the given value.
+     *
+     * @param value The value to be animated to.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator translationX(float value) {
+        animateProperty(TRANSLATION_X, value, false);
+        return this;
+    }
+
+    /**
+     * Animates the <code>translationX</code> property of every view by the given amount.
+     *
+     * @param value The amount to be animated by, as an offset from each view's current value.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator translationXBy(float value) {
+        animateProperty(TRANSLATION_X, value, true);
+        return this;
+    }
+
+    /**
+     * Animates the <code>translationY</code> property of every view to the given value.
+     *
+     * @param value The value to be animated to.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator translationY(float value) {
+        animateProperty(TRANSLATION_Y, value, false);
+        return this;
+    }
+
+    /**
+     * Animates the <code>translationY</code> property of every view by the given amount.
+     *
+     * @param value The amount to be animated by, as an offset from each view's current value.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator translationYBy(float value) {
+        animateProperty(TRANSLATION_Y, value, true);
+        return this;
+    }
+
+    /**
+     * Animates the <code>scaleX</code> property of every view to the given value.
+     *
+     * @param value The value to be animated to.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator scaleX(float value) {
+        animateProperty(SCALE_X, value, false);
+        return this;
+    }
+
+    /**
+     * Animates the <code>scaleX</code> property of every view by the given amount.
+     *
+     * @param value The amount to be animated by, as an offset from each view's current value.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator scaleXBy(float value) {
+        animateProperty(SCALE_X, value, true);
+        return this;
+    }
+
+    /**
+     * Animates the <code>scaleY</code> property of every view to the given value.
+     *
+     * @param value The value to be animated to.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator scaleY(float value) {
+        animateProperty(SCALE_Y, value, false);
+        return this;
+    }
+
+    /**
+     * Animates the <code>scaleY</code> property of every view by the given amount.
+     *
+     * @param value The amount to be animated by, as an offset from each view's current value.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator scaleYBy(float value) {
+        animateProperty(SCALE_Y, value, true);
+        return this;
+    }
+
+    /**
+     * Animates the <code>alpha</code> property of every view to the given value.
+     *
+     * @param value The value to be animated to.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator alpha(float value) {
+        animateProperty(ALPHA, value, false);
+        return this;
+    }
+
+    /**
+     * Animates the <code>alpha</code> property of every view by the given amount.
+     *
+     * @param value The amount to be animated by, as an offset from each view's current value.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public GroupViewPropertyAnimator alphaBy(float value) {
+        animateProperty(ALPHA, value, true);
+        return this;
+    }
+
+    private void animateProperty(int property, float value, boolean by) {
+        mPendingMask |= 1 << property;
+        if (by) {
+            mPendingByMask |= 1 << property;
+        } else {
+            mPendingByMask &= ~(1 << property);
+        }
+        mPendingValues[property] = value;
+    }
+
+    private static void setValue(View view, int property, float value) {
+        switch (property) {
+            case TRANSLATION_X:
+                ViewHelper.setTranslationX(view, value);
+                break;
+            case TRANSLATION_Y:
+                ViewHelper.setTranslationY(view, value);
+                break;
+            case SCALE_X:
+                ViewHelper.setScaleX(view, value);
+                break;
+            case SCALE_Y:
+                ViewHelper.setScaleY(view, value);
+                break;
+            case ROTATION:
+                ViewHelper.setRotation(view, value);
+                break;
+            case ROTATION_X:
+                ViewHelper.setRotationX(view, value);
+                break;
+            case ROTATION_Y:
+                ViewHelper.setRotationY(view, value);
+                break;
+            case X:
+                ViewHelper.setX(view, value);
+                break;
+            case Y:
+                ViewHelper.setY(view, value);
+                break;
+            case ALPHA:
+                ViewHelper.setAlpha(view, value);
+                break;
+        }
+    }
+
+    private static float getValue(View view, int property) {
+        switch (property) {
+            case TRANSLATION_X:
+                return ViewHelper.getTranslationX(view);
+            case TRANSLATION_Y:
+                return ViewHelper.getTranslationY(view);
+            case SCALE_X:
+                return ViewHelper.getScaleX(view);
+            case SCALE_Y:
+                return ViewHelper.getScaleY(view);
+            case ROTATION:
+                return ViewHelper.getRotation(view);
+            case ROTATION_X:
+                return ViewHelper.getRotationX(view);
+            case ROTATION_Y:
+                return ViewHelper.getRotationY(view);
+            case X:
+                return ViewHelper.getX(view);
+            case Y:
+                return ViewHelper.getY(view);
+            case ALPHA:
+                return ViewHelper.getAlpha(view);
+        }
+        return 0;
+    }
+}
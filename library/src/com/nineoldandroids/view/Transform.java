@@ -0,0 +1,44 @@
+package com.nineoldandroids.view;
+
+/**
+ * The translation, scale, rotation and alpha of a view, to be set all at once with
+ * {@link ViewHelper#setTransform(android.view.View, Transform)}. A single instance can be filled in and
+ * applied to each of many views in turn, such as the rows of a list on every frame.
+ */
+public final class Transform {
+    public float translationX;
+    public float translationY;
+    public float scaleX = 1;
+    public float scaleY = 1;
+    public float rotation;
+    public float alpha = 1;
+
+    /**
+     * Creates an identity transform: no translation or rotation, unit scale and full opacity.
+     */
+    public Transform() {
+    }
+
+    public Transform(float translationX, float translationY, float scaleX, float scaleY,
+            float rotation, float alpha) {
+        set(translationX, translationY, scaleX, scaleY, rotation, alpha);
+    }
+
+    public Transform set(float translationX, float translationY, float scaleX, float scaleY,
+            float rotation, float alpha) {
+        this.translationX = translationX;
+        this.translationY = translationY;
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+        this.rotation = rotation;
+        this.alpha = alpha;
+        return this;
+    }
+
+    /**
+     * Resets this transform to the identity.
+     */
+    public Transform reset() {
+        return set(0, 0, 1, 1, 0, 1);
+    }
+}
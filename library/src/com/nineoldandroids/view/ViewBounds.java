@@ -0,0 +1,126 @@
+package com.nineoldandroids.view;
+
+import android.graphics.Rect;
+import android.view.View;
+
+import com.nineoldandroids.util.Property;
+
+import static com.nineoldandroids.view.animation.AnimatorProxy.NEEDS_PROXY;
+
+/**
+ * A property for the bounds of a view within its parent, which moves all of its edges in one
+ * setter call per frame rather than one per edge. A view that keeps its size along an axis is
+ * moved along it with {@link View#offsetTopAndBottom(int)} or
+ * {@link View#offsetLeftAndRight(int)}, which invalidate once and never lay anything out.
+ * From Honeycomb on, an axis along which the view is resized has its edges set with
+ * <code>setLeft()</code>, <code>setTop()</code>, <code>setRight()</code> and
+ * <code>setBottom()</code>, which resize the view without laying out its children. Before
+ * Honeycomb, where views have no such setters, a view that is resized is moved with
+ * {@link View#layout(int, int, int, int)}, which also lays out its children.
+ *
+ * <p>Either way, the bounds are only kept until the parent lays the view out again, as with
+ * the separate setters.</p>
+ *
+ * @see com.nineoldandroids.animation.PropertyValuesHolder#ofBounds(Rect...)
+ */
+public final class ViewBounds extends Property<View, Rect> {
+    /**
+     * The left, top, right and bottom of a view.
+     */
+    public static final ViewBounds BOUNDS = new ViewBounds("bounds", false);
+
+    /**
+     * The top and bottom of a view. The left and right of the values are ignored when set,
+     * leaving those of the view as they are.
+     */
+    public static final ViewBounds VERTICAL_BOUNDS = new ViewBounds("verticalBounds", true);
+
+    private final boolean mVerticalOnly;
+
+    private ViewBounds(String name, boolean verticalOnly) {
+        super(Rect.class, name);
+        mVerticalOnly = verticalOnly;
+    }
+
+    /**
+     * Moves the edges of the view, as set() does, without needing a Rect.
+     */
+    public void setBounds(View view, int left, int top, int right, int bottom) {
+        final int oldLeft = view.getLeft();
+        final int oldTop = view.getTop();
+        if (mVerticalOnly) {
+            left = oldLeft;
+            right = view.getRight();
+        }
+        final boolean sameWidth = right - left == view.getRight() - oldLeft;
+        final boolean sameHeight = bottom - top == view.getBottom() - oldTop;
+        if (NEEDS_PROXY) {
+            if (sameWidth && sameHeight) {
+                if (left != oldLeft || top != oldTop) {
+                    // Before Honeycomb, offsetting does not invalidate, so the old and the new
+                    // area are invalidated around it
+                    view.invalidate();
+                    if (left != oldLeft) {
+                        view.offsetLeftAndRight(left - oldLeft);
+                    }
+                    if (top != oldTop) {
+                        view.offsetTopAndBottom(top - oldTop);
+                    }
+                    view.invalidate();
+                }
+            } else {
+                view.layout(left, top, right, bottom);
+            }
+        } else {
+            if (sameWidth) {
+                if (left != oldLeft) {
+                    view.offsetLeftAndRight(left - oldLeft);
+                }
+            } else {
+                Honeycomb.setHorizontalBounds(view, left, right);
+            }
+            if (sameHeight) {
+                if (top != oldTop) {
+                    view.offsetTopAndBottom(top - oldTop);
+                }
+            } else {
+                Honeycomb.setVerticalBounds(view, top, bottom);
+            }
+        }
+    }
+
+    @Override
+    public void set(View view, Rect value) {
+        setBounds(view, value.left, value.top, value.right, value.bottom);
+    }
+
+    @Override
+    public Rect get(View view) {
+        return new Rect(view.getLeft(), view.getTop(), view.getRight(), view.getBottom());
+    }
+
+    private static final class Honeycomb {
+        // Each pair of edges is set in the order that never gives the view a negative size
+        // in between
+
+        static void setHorizontalBounds(View view, int left, int right) {
+            if (left > view.getRight()) {
+                view.setRight(right);
+                view.setLeft(left);
+            } else {
+                view.setLeft(left);
+                view.setRight(right);
+            }
+        }
+
+        static void setVerticalBounds(View view, int top, int bottom) {
+            if (top > view.getBottom()) {
+                view.setBottom(bottom);
+                view.setTop(top);
+            } else {
+                view.setTop(top);
+                view.setBottom(bottom);
+            }
+        }
+    }
+}
@@ -176,6 +176,29 @@ public final class ViewHelper {
         }
     }
 
+    /**
+     * Sets the translation, scale, rotation and alpha of a view in one pass. Before Honeycomb,
+     * this looks up the view's proxy once and invalidates the view once, rather than once for
+     * each property as the separate setters do.
+     */
+    public static void setTransform(View view, float translationX, float translationY,
+            float scaleX, float scaleY, float rotation, float alpha) {
+        if (NEEDS_PROXY) {
+            wrap(view).setTransform(translationX, translationY, scaleX, scaleY, rotation, alpha);
+        } else {
+            Honeycomb.setTransform(view, translationX, translationY, scaleX, scaleY, rotation, alpha);
+        }
+    }
+
+    /**
+     * Sets the translation, scale, rotation and alpha held by <code>transform</code> on a view,
+     * as {@link #setTransform(View, float, float, float, float, float, float)} does.
+     */
+    public static void setTransform(View view, Transform transform) {
+        setTransform(view, transform.translationX, transform.translationY,
+                transform.scaleX, transform.scaleY, transform.rotation, transform.alpha);
+    }
+
     private static final class Honeycomb {
         static float getAlpha(View view) {
             return view.getAlpha();
@@ -288,5 +311,15 @@ public final class ViewHelper {
         static void setY(View view, float y) {
             view.setY(y);
         }
+
+        static void setTransform(View view, float translationX, float translationY,
+                float scaleX, float scaleY, float rotation, float alpha) {
+            view.setTranslationX(translationX);
+            view.setTranslationY(translationY);
+            view.setScaleX(scaleX);
+            view.setScaleY(scaleY);
+            view.setRotation(rotation);
+            view.setAlpha(alpha);
+        }
     }
 }
@@ -44,6 +44,8 @@ import com.nineoldandroids.animation.Animator;
  *
  */
 public abstract class ViewPropertyAnimator {
+    private static final int SDK_VERSION = Integer.valueOf(Build.VERSION.SDK);
+
     private static final WeakHashMap<View, ViewPropertyAnimator> ANIMATORS =
             new WeakHashMap<View, ViewPropertyAnimator>(0);
 
@@ -57,10 +59,9 @@ public abstract class ViewPropertyAnimator {
     public static ViewPropertyAnimator animate(View view) {
         ViewPropertyAnimator animator = ANIMATORS.get(view);
         if (animator == null) {
-            final int version = Integer.valueOf(Build.VERSION.SDK);
-            if (version >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            if (SDK_VERSION >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
                 animator = new ViewPropertyAnimatorICS(view);
-            } else if (version >= Build.VERSION_CODES.HONEYCOMB) {
+            } else if (SDK_VERSION >= Build.VERSION_CODES.HONEYCOMB) {
                 animator = new ViewPropertyAnimatorHC(view);
             } else {
                 animator = new ViewPropertyAnimatorPreHC(view);
@@ -130,6 +131,40 @@ public abstract class ViewPropertyAnimator {
      */
     public abstract ViewPropertyAnimator setListener(Animator.AnimatorListener listener);
 
+    /**
+     * The View associated with this ViewPropertyAnimator will have its layer type set to
+     * {@link View#LAYER_TYPE_HARDWARE} for the duration of the next animation, and restored
+     * to its previous layer type when the animation ends or is canceled. The view is then
+     * rendered once into the layer and only recomposited on every frame, rather than redrawn
+     * with all of its children. There are no hardware layers before Honeycomb, where this
+     * call has no effect.
+     *
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public abstract ViewPropertyAnimator withLayer();
+
+    /**
+     * Specifies an action to take place when the next animation runs. If there is a
+     * {@link #setStartDelay(long) startDelay} set on this ViewPropertyAnimator, then the
+     * action will run after that startDelay expires, when the actual animation begins.
+     * The action only applies to the next animation, unlike a listener, so one Runnable can
+     * be shared by many animations instead of allocating a listener for each of them.
+     *
+     * @param runnable The action to run when the next animation starts.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public abstract ViewPropertyAnimator withStartAction(Runnable runnable);
+
+    /**
+     * Specifies an action to take place when the next animation ends. The action is only
+     * run if the animation ends normally; if the ViewPropertyAnimator is canceled during
+     * that animation, the runnable will not run.
+     *
+     * @param runnable The action to run when the next animation ends.
+     * @return This object, allowing calls to methods in this class to be chained.
+     */
+    public abstract ViewPropertyAnimator withEndAction(Runnable runnable);
+
     /**
      * Starts the currently pending property animations immediately. Calling <code>start()</code>
      * is optional because all animations start automatically at the next opportunity. However,
@@ -1,6 +1,7 @@
 package com.nineoldandroids.view;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 
 import android.view.View;
 import android.view.animation.Interpolator;
@@ -18,8 +19,137 @@ class ViewPropertyAnimatorICS extends ViewPropertyAnimator {
      */
     private final WeakReference<android.view.ViewPropertyAnimator> mNative;
 
+    /**
+     * A WeakReference holding the View whose properties are being animated by this class.
+     */
+    private final WeakReference<View> mView;
+
+    /**
+     * The listener set by the caller, called through mNativeListener.
+     */
+    private AnimatorListener mListener = null;
+
+    /**
+     * Whether withLayer() has been called for the animation that is about to start. The
+     * native withLayer() only exists from Jelly Bean on, so it is emulated here by setting
+     * the layer type from the events of the native animators.
+     */
+    private boolean mPendingWithLayer = false;
+
+    /**
+     * The native animators that hold the view in a hardware layer, and the layer type the
+     * view had before the first of them started, to restore when the last one ends.
+     */
+    private final ArrayList<android.animation.Animator> mLayerAnimators =
+            new ArrayList<android.animation.Animator>(1);
+    private int mPreviousLayerType;
+
+    /**
+     * The actions set by withStartAction() and withEndAction() for the animation that is
+     * about to start. Like withLayer(), these are emulated on top of the native events: the
+     * start action runs when the next native animator starts, which also takes the end
+     * action to run once it ends without having been canceled.
+     */
+    private Runnable mPendingStartAction = null;
+    private Runnable mPendingEndAction = null;
+    private final ArrayList<android.animation.Animator> mEndActionAnimators =
+            new ArrayList<android.animation.Animator>(1);
+    private final ArrayList<Runnable> mEndActions = new ArrayList<Runnable>(1);
+
+    /**
+     * The number of native animators that have started and not yet ended. The native
+     * ViewPropertyAnimator drops its listener once none is left, and so does this class.
+     */
+    private int mNumRunning = 0;
+
+    /**
+     * The listener set on the native ViewPropertyAnimator, which forwards its events to the
+     * caller's listener and handles hardware layers.
+     */
+    private final android.animation.Animator.AnimatorListener mNativeListener =
+            new android.animation.Animator.AnimatorListener() {
+        @Override
+        public void onAnimationStart(android.animation.Animator animation) {
+            ++mNumRunning;
+            if (mPendingWithLayer) {
+                mPendingWithLayer = false;
+                View v = mView.get();
+                if (v != null) {
+                    if (mLayerAnimators.isEmpty()) {
+                        mPreviousLayerType = v.getLayerType();
+                        v.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+                    }
+                    mLayerAnimators.add(animation);
+                }
+            }
+            if (mPendingEndAction != null) {
+                mEndActionAnimators.add(animation);
+                mEndActions.add(mPendingEndAction);
+                mPendingEndAction = null;
+            }
+            if (mPendingStartAction != null) {
+                Runnable startAction = mPendingStartAction;
+                mPendingStartAction = null;
+                startAction.run();
+            }
+            if (mListener != null) {
+                mListener.onAnimationStart(null);
+            }
+        }
+
+        @Override
+        public void onAnimationRepeat(android.animation.Animator animation) {
+            if (mListener != null) {
+                mListener.onAnimationRepeat(null);
+            }
+        }
+
+        @Override
+        public void onAnimationEnd(android.animation.Animator animation) {
+            if (mLayerAnimators.remove(animation) && mLayerAnimators.isEmpty()) {
+                View v = mView.get();
+                if (v != null) {
+                    v.setLayerType(mPreviousLayerType, null);
+                }
+            }
+            Runnable endAction = removeEndAction(animation);
+            AnimatorListener listener = mListener;
+            if (mNumRunning > 0 && --mNumRunning == 0) {
+                mListener = null;
+            }
+            if (listener != null) {
+                listener.onAnimationEnd(null);
+            }
+            if (endAction != null) {
+                endAction.run();
+            }
+        }
+
+        @Override
+        public void onAnimationCancel(android.animation.Animator animation) {
+            // The end event follows, but the end action only runs for an uncanceled animation
+            removeEndAction(animation);
+            if (mListener != null) {
+                mListener.onAnimationCancel(null);
+            }
+        }
+    };
+
+    /**
+     * Removes the end action taken by the given native animator, if it took one.
+     */
+    private Runnable removeEndAction(android.animation.Animator animation) {
+        int index = mEndActionAnimators.indexOf(animation);
+        if (index < 0) {
+            return null;
+        }
+        mEndActionAnimators.remove(index);
+        return mEndActions.remove(index);
+    }
+
     ViewPropertyAnimatorICS(View view) {
         mNative = new WeakReference<android.view.ViewPropertyAnimator>(view.animate());
+        mView = new WeakReference<View>(view);
     }
 
     @Override
@@ -68,38 +198,46 @@ class ViewPropertyAnimatorICS extends ViewPropertyAnimator {
     }
 
     @Override
-    public ViewPropertyAnimator setListener(final AnimatorListener listener) {
-        android.view.ViewPropertyAnimator n = mNative.get();
-        if (n != null) {
-            if (listener == null) {
-                n.setListener(null);
-            } else {
-                n.setListener(new android.animation.Animator.AnimatorListener() {
-                    @Override
-                    public void onAnimationStart(android.animation.Animator animation) {
-                        listener.onAnimationStart(null);
-                    }
+    public ViewPropertyAnimator setListener(AnimatorListener listener) {
+        mListener = listener;
+        updateNativeListener();
+        return this;
+    }
 
-                    @Override
-                    public void onAnimationRepeat(android.animation.Animator animation) {
-                        listener.onAnimationRepeat(null);
-                    }
+    @Override
+    public ViewPropertyAnimator withLayer() {
+        mPendingWithLayer = true;
+        updateNativeListener();
+        return this;
+    }
 
-                    @Override
-                    public void onAnimationEnd(android.animation.Animator animation) {
-                        listener.onAnimationEnd(null);
-                    }
+    @Override
+    public ViewPropertyAnimator withStartAction(Runnable runnable) {
+        mPendingStartAction = runnable;
+        updateNativeListener();
+        return this;
+    }
 
-                    @Override
-                    public void onAnimationCancel(android.animation.Animator animation) {
-                        listener.onAnimationCancel(null);
-                    }
-                });
-            }
-        }
+    @Override
+    public ViewPropertyAnimator withEndAction(Runnable runnable) {
+        mPendingEndAction = runnable;
+        updateNativeListener();
         return this;
     }
 
+    /**
+     * Sets mNativeListener on the native animator while there is anything for it to do.
+     */
+    private void updateNativeListener() {
+        android.view.ViewPropertyAnimator n = mNative.get();
+        if (n != null) {
+            boolean needed = mListener != null || mPendingWithLayer || !mLayerAnimators.isEmpty()
+                    || mPendingStartAction != null || mPendingEndAction != null
+                    || !mEndActions.isEmpty();
+            n.setListener(needed ? mNativeListener : null);
+        }
+    }
+
     @Override
     public void start() {
         android.view.ViewPropertyAnimator n = mNative.get();
@@ -110,6 +248,9 @@ class ViewPropertyAnimatorICS extends ViewPropertyAnimator {
 
     @Override
     public void cancel() {
+        mPendingWithLayer = false;
+        mPendingStartAction = null;
+        mPendingEndAction = null;
         android.view.ViewPropertyAnimator n = mNative.get();
         if (n != null) {
             n.cancel();
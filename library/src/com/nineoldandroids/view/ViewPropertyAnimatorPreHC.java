@@ -18,8 +18,6 @@ package com.nineoldandroids.view;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Set;
 import android.view.View;
 import android.view.animation.Interpolator;
 import com.nineoldandroids.animation.Animator;
@@ -84,21 +82,23 @@ class ViewPropertyAnimatorPreHC extends ViewPropertyAnimator {
     private Animator.AnimatorListener mListener = null;
 
     /**
-     * This listener is the mechanism by which the underlying Animator causes changes to the
-     * properties currently being animated, as well as the cleanup after an animation is
-     * complete.
+     * The properties that have been asked to animate. We allow the caller to request several
+     * animations prior to actually starting the underlying animator. This enables us to run
+     * one single animator to handle several properties in parallel. Each property is flagged
+     * in the pending mask, with its values stored at its index in the pending arrays, until
+     * the animation actually starts (which is done by posting it onto mView), at which time
+     * the properties are handed over to the run that animates them.
      */
-    private AnimatorEventListener mAnimatorEventListener = new AnimatorEventListener();
+    private int mPendingMask = NONE;
+    private final float[] mPendingFromValues = new float[NUM_PROPERTIES];
+    private final float[] mPendingDeltaValues = new float[NUM_PROPERTIES];
 
     /**
-     * This list holds the properties that have been asked to animate. We allow the caller to
-     * request several animations prior to actually starting the underlying animator. This
-     * enables us to run one single animator to handle several properties in parallel. Each
-     * property is tossed onto the pending list until the animation actually starts (which is
-     * done by posting it onto mView), at which time the pending list is cleared and the properties
-     * on that list are added to the list of properties associated with that animator.
+     * The actions set by withStartAction() and withEndAction() for the animation that is
+     * about to start.
      */
-    ArrayList<NameValuesHolder> mPendingAnimations = new ArrayList<NameValuesHolder>();
+    private Runnable mPendingStartAction = null;
+    private Runnable mPendingEndAction = null;
 
     /**
      * Constants used to associate a property being requested and the mechanism used to set
@@ -116,8 +116,11 @@ class ViewPropertyAnimatorPreHC extends ViewPropertyAnimator {
     private static final int Y              = 0x0100;
     private static final int ALPHA          = 0x0200;
 
-    private static final int TRANSFORM_MASK = TRANSLATION_X | TRANSLATION_Y | SCALE_X | SCALE_Y |
-            ROTATION | ROTATION_X | ROTATION_Y | X | Y;
+    /**
+     * The number of properties above; the index of a property in the arrays of values is the
+     * position of its bit.
+     */
+    private static final int NUM_PROPERTIES = 10;
 
     /**
      * The mechanism by which the user can request several properties that are then animated
@@ -135,71 +138,113 @@ class ViewPropertyAnimatorPreHC extends ViewPropertyAnimator {
     };
 
     /**
-     * This class holds information about the overall animation being run on the set of
-     * properties. The mask describes which properties are being animated and the
-     * values holder is the list of all property/value objects.
+     * The run of the underlying animator that is animating each property, by property index,
+     * or null for properties that are not being animated. Every new animation of a property
+     * takes it away from its previous run, so a property belongs to one run at most.
+     */
+    private final Run[] mPropertyRuns = new Run[NUM_PROPERTIES];
+
+    /**
+     * The runs in progress. In most situations there would only ever be one. But it is
+     * possible to request some properties to animate together, then while those properties
+     * are animating, to request some other properties to animate together, each group with
+     * its own run of an animator.
+     */
+    private final ArrayList<Run> mRuns = new ArrayList<Run>(1);
+
+    /**
+     * Runs that have finished, kept so that their animator and arrays are reused by the next
+     * animation rather than allocated again.
+     */
+    private final ArrayList<Run> mSpareRuns = new ArrayList<Run>(1);
+
+    /**
+     * One animation of a group of properties: an animator that simply runs from 0 to 1,
+     * the properties it animates and the from/delta values used to calculate each of them
+     * for a given animation fraction. The run is the animator's listener, handling the update
+     * events, which set the properties on the view, and the end event, after which the run
+     * is recycled.
      */
-    private static class PropertyBundle {
-        int mPropertyMask;
-        ArrayList<NameValuesHolder> mNameValuesHolder;
+    private class Run implements Animator.AnimatorListener, ValueAnimator.AnimatorUpdateListener {
+        final ValueAnimator mAnimator = ValueAnimator.ofFloat(1.0f);
+        int mPropertyMask = NONE;
+        final float[] mFromValues = new float[NUM_PROPERTIES];
+        final float[] mDeltaValues = new float[NUM_PROPERTIES];
+
+        // The actions to run when this run starts and when it ends, and whether it has been
+        // canceled, in which case the end action is skipped
+        Runnable mStartAction;
+        Runnable mEndAction;
+        boolean mCanceled;
+
+        Run() {
+            mAnimator.addUpdateListener(this);
+            mAnimator.addListener(this);
+        }
+
+        @Override
+        public void onAnimationStart(Animator animation) {
+            if (mStartAction != null) {
+                mStartAction.run();
+            }
+            if (mListener != null) {
+                mListener.onAnimationStart(animation);
+            }
+        }
+
+        @Override
+        public void onAnimationCancel(Animator animation) {
+            mCanceled = true;
+            if (mListener != null) {
+                mListener.onAnimationCancel(animation);
+            }
+        }
+
+        @Override
+        public void onAnimationRepeat(Animator animation) {
+            if (mListener != null) {
+                mListener.onAnimationRepeat(animation);
+            }
+        }
 
-        PropertyBundle(int propertyMask, ArrayList<NameValuesHolder> nameValuesHolder) {
-            mPropertyMask = propertyMask;
-            mNameValuesHolder = nameValuesHolder;
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            Animator.AnimatorListener listener = mListener;
+            Runnable endAction = mCanceled ? null : mEndAction;
+            // Recycle the run first, so that the listener can start a new animation with it
+            finishRun(this);
+            if (listener != null) {
+                listener.onAnimationEnd(animation);
+            }
+            if (endAction != null) {
+                endAction.run();
+            }
         }
 
         /**
-         * Removes the given property from being animated as a part of this
-         * PropertyBundle. If the property was a part of this bundle, it returns
-         * true to indicate that it was, in fact, canceled. This is an indication
-         * to the caller that a cancellation actually occurred.
+         * Calculate the current value for each property and set it on the view, through a
+         * single update of the proxy.
          *
-         * @param propertyConstant The property whose cancellation is requested.
-         * @return true if the given property is a part of this bundle and if it
-         * has therefore been canceled.
+         * @param animation The animator associated with the properties that need to be
+         * set. This animator holds the animation fraction which we will use to calculate
+         * the current value of each property.
          */
-        boolean cancel(int propertyConstant) {
-            if ((mPropertyMask & propertyConstant) != 0 && mNameValuesHolder != null) {
-                int count = mNameValuesHolder.size();
-                for (int i = 0; i < count; ++i) {
-                    NameValuesHolder nameValuesHolder = mNameValuesHolder.get(i);
-                    if (nameValuesHolder.mNameConstant == propertyConstant) {
-                        mNameValuesHolder.remove(i);
-                        mPropertyMask &= ~propertyConstant;
-                        return true;
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            float fraction = animation.getAnimatedFraction();
+            int propertyMask = mPropertyMask;
+            // The proxy invalidates the view once for all of the properties set in the update
+            mProxy.beginUpdate();
+            try {
+                for (int i = 0; i < NUM_PROPERTIES; ++i) {
+                    int propertyConstant = 1 << i;
+                    if ((propertyMask & propertyConstant) != 0) {
+                        setValue(propertyConstant, mFromValues[i] + fraction * mDeltaValues[i]);
                     }
                 }
+            } finally {
+                mProxy.endUpdate();
             }
-            return false;
-        }
-    }
-
-    /**
-     * This list tracks the list of properties being animated by any particular animator.
-     * In most situations, there would only ever be one animator running at a time. But it is
-     * possible to request some properties to animate together, then while those properties
-     * are animating, to request some other properties to animate together. The way that
-     * works is by having this map associate the group of properties being animated with the
-     * animator handling the animation. On every update event for an Animator, we ask the
-     * map for the associated properties and set them accordingly.
-     */
-    private HashMap<Animator, PropertyBundle> mAnimatorMap =
-            new HashMap<Animator, PropertyBundle>();
-
-    /**
-     * This is the information we need to set each property during the animation.
-     * mNameConstant is used to set the appropriate field in View, and the from/delta
-     * values are used to calculate the animated value for a given animation fraction
-     * during the animation.
-     */
-    private static class NameValuesHolder {
-        int mNameConstant;
-        float mFromValue;
-        float mDeltaValue;
-        NameValuesHolder(int nameConstant, float fromValue, float deltaValue) {
-            mNameConstant = nameConstant;
-            mFromValue = fromValue;
-            mDeltaValue = deltaValue;
         }
     }
 
@@ -285,6 +330,24 @@ class ViewPropertyAnimatorPreHC extends ViewPropertyAnimator {
         return this;
     }
 
+    @Override
+    public ViewPropertyAnimator withLayer() {
+        // No hardware layers to render into before Honeycomb
+        return this;
+    }
+
+    @Override
+    public ViewPropertyAnimator withStartAction(Runnable runnable) {
+        mPendingStartAction = runnable;
+        return this;
+    }
+
+    @Override
+    public ViewPropertyAnimator withEndAction(Runnable runnable) {
+        mPendingEndAction = runnable;
+        return this;
+    }
+
     @Override
     public void start() {
         startAnimation();
@@ -292,15 +355,17 @@ class ViewPropertyAnimatorPreHC extends ViewPropertyAnimator {
 
     @Override
     public void cancel() {
-        if (mAnimatorMap.size() > 0) {
-            HashMap<Animator, PropertyBundle> mAnimatorMapCopy =
-                    (HashMap<Animator, PropertyBundle>)mAnimatorMap.clone();
-            Set<Animator> animatorSet = mAnimatorMapCopy.keySet();
-            for (Animator runningAnim : animatorSet) {
-                runningAnim.cancel();
+        for (int i = mRuns.size() - 1; i >= 0; --i) {
+            if (i < mRuns.size()) {
+                Run run = mRuns.get(i);
+                run.mAnimator.cancel();
+                // An animator canceled during its start delay does not send an end event
+                finishRun(run);
             }
         }
-        mPendingAnimations.clear();
+        mPendingMask = NONE;
+        mPendingStartAction = null;
+        mPendingEndAction = null;
         View v = mView.get();
         if (v != null) {
             v.removeCallbacks(mAnimationStarter);
@@ -433,19 +498,29 @@ class ViewPropertyAnimatorPreHC extends ViewPropertyAnimator {
      * value accordingly.
      */
     private void startAnimation() {
-        ValueAnimator animator = ValueAnimator.ofFloat(1.0f);
-        ArrayList<NameValuesHolder> nameValueList =
-                (ArrayList<NameValuesHolder>) mPendingAnimations.clone();
-        mPendingAnimations.clear();
-        int propertyMask = 0;
-        int propertyCount = nameValueList.size();
-        for (int i = 0; i < propertyCount; ++i) {
-            NameValuesHolder nameValuesHolder = nameValueList.get(i);
-            propertyMask |= nameValuesHolder.mNameConstant;
+        final Run run;
+        int numSpareRuns = mSpareRuns.size();
+        if (numSpareRuns > 0) {
+            run = mSpareRuns.remove(numSpareRuns - 1);
+        } else {
+            run = new Run();
+        }
+        int propertyMask = mPendingMask;
+        mPendingMask = NONE;
+        for (int i = 0; i < NUM_PROPERTIES; ++i) {
+            if ((propertyMask & (1 << i)) != 0) {
+                run.mFromValues[i] = mPendingFromValues[i];
+                run.mDeltaValues[i] = mPendingDeltaValues[i];
+                mPropertyRuns[i] = run;
+            }
         }
-        mAnimatorMap.put(animator, new PropertyBundle(propertyMask, nameValueList));
-        animator.addUpdateListener(mAnimatorEventListener);
-        animator.addListener(mAnimatorEventListener);
+        run.mPropertyMask = propertyMask;
+        run.mStartAction = mPendingStartAction;
+        run.mEndAction = mPendingEndAction;
+        mPendingStartAction = null;
+        mPendingEndAction = null;
+        mRuns.add(run);
+        ValueAnimator animator = run.mAnimator;
         if (mStartDelaySet) {
             animator.setStartDelay(mStartDelay);
         }
@@ -458,6 +533,32 @@ class ViewPropertyAnimatorPreHC extends ViewPropertyAnimator {
         animator.start();
     }
 
+    /**
+     * Removes a run that has ended or been canceled from the runs in progress, and keeps it
+     * for reuse. Does nothing if the run has already been finished.
+     */
+    private void finishRun(Run run) {
+        if (!mRuns.remove(run)) {
+            return;
+        }
+        for (int i = 0; i < NUM_PROPERTIES; ++i) {
+            if (mPropertyRuns[i] == run) {
+                mPropertyRuns[i] = null;
+            }
+        }
+        run.mPropertyMask = NONE;
+        run.mStartAction = null;
+        run.mEndAction = null;
+        run.mCanceled = false;
+        mSpareRuns.add(run);
+        // If there are no runs left, all animations are done or canceled, so the listener
+        // isn't needed anymore. Not nulling it would cause it to leak any objects used in
+        // its implementation
+        if (mRuns.isEmpty()) {
+            mListener = null;
+        }
+    }
+
     /**
      * Utility function, called by the various x(), y(), etc. methods. This stores the
      * constant name for the property along with the from/delta values that will be used to
@@ -498,31 +599,22 @@ class ViewPropertyAnimatorPreHC extends ViewPropertyAnimator {
      * @param byValue The amount by which the property will change
      */
     private void animatePropertyBy(int constantName, float startValue, float byValue) {
-        // First, cancel any existing animations on this property
-        if (mAnimatorMap.size() > 0) {
-            Animator animatorToCancel = null;
-            Set<Animator> animatorSet = mAnimatorMap.keySet();
-            for (Animator runningAnim : animatorSet) {
-                PropertyBundle bundle = mAnimatorMap.get(runningAnim);
-                if (bundle.cancel(constantName)) {
-                    // property was canceled - cancel the animation if it's now empty
-                    // Note that it's safe to break out here because every new animation
-                    // on a property will cancel a previous animation on that property, so
-                    // there can only ever be one such animation running.
-                    if (bundle.mPropertyMask == NONE) {
-                        // the animation is no longer changing anything - cancel it
-                        animatorToCancel = runningAnim;
-                        break;
-                    }
-                }
-            }
-            if (animatorToCancel != null) {
-                animatorToCancel.cancel();
+        // First, cancel any existing animation on this property
+        int index = Integer.numberOfTrailingZeros(constantName);
+        Run run = mPropertyRuns[index];
+        if (run != null) {
+            mPropertyRuns[index] = null;
+            run.mPropertyMask &= ~constantName;
+            if (run.mPropertyMask == NONE) {
+                // the animation is no longer changing anything - cancel it
+                run.mAnimator.cancel();
+                finishRun(run);
             }
         }
 
-        NameValuesHolder nameValuePair = new NameValuesHolder(constantName, startValue, byValue);
-        mPendingAnimations.add(nameValuePair);
+        mPendingFromValues[index] = startValue;
+        mPendingDeltaValues[index] = byValue;
+        mPendingMask |= constantName;
         View v = mView.get();
         if (v != null) {
             v.removeCallbacks(mAnimationStarter);
@@ -626,99 +718,4 @@ class ViewPropertyAnimatorPreHC extends ViewPropertyAnimator {
         }
         return 0;
     }
-
-    /**
-     * Utility class that handles the various Animator events. The only ones we care
-     * about are the end event (which we use to clean up the animator map when an animator
-     * finishes) and the update event (which we use to calculate the current value of each
-     * property and then set it on the view object).
-     */
-    private class AnimatorEventListener
-            implements Animator.AnimatorListener, ValueAnimator.AnimatorUpdateListener {
-        @Override
-        public void onAnimationStart(Animator animation) {
-            if (mListener != null) {
-                mListener.onAnimationStart(animation);
-            }
-        }
-
-        @Override
-        public void onAnimationCancel(Animator animation) {
-            if (mListener != null) {
-                mListener.onAnimationCancel(animation);
-            }
-        }
-
-        @Override
-        public void onAnimationRepeat(Animator animation) {
-            if (mListener != null) {
-                mListener.onAnimationRepeat(animation);
-            }
-        }
-
-        @Override
-        public void onAnimationEnd(Animator animation) {
-            if (mListener != null) {
-                mListener.onAnimationEnd(animation);
-            }
-            mAnimatorMap.remove(animation);
-            // If the map is empty, it means all animation are done or canceled, so the listener
-            // isn't needed anymore. Not nulling it would cause it to leak any objects used in
-            // its implementation
-            if (mAnimatorMap.isEmpty()) {
-                mListener = null;
-            }
-        }
-
-        /**
-         * Calculate the current value for each property and set it on the view. Invalidate
-         * the view object appropriately, depending on which properties are being animated.
-         *
-         * @param animation The animator associated with the properties that need to be
-         * set. This animator holds the animation fraction which we will use to calculate
-         * the current value of each property.
-         */
-        @Override
-        public void onAnimationUpdate(ValueAnimator animation) {
-            // alpha requires slightly different treatment than the other (transform) properties.
-            // The logic in setAlpha() is not simply setting mAlpha, plus the invalidation
-            // logic is dependent on how the view handles an internal call to onSetAlpha().
-            // We track what kinds of properties are set, and how alpha is handled when it is
-            // set, and perform the invalidation steps appropriately.
-            //boolean alphaHandled = false;
-            //mView.invalidateParentCaches();
-            float fraction = animation.getAnimatedFraction();
-            PropertyBundle propertyBundle = mAnimatorMap.get(animation);
-            int propertyMask = propertyBundle.mPropertyMask;
-            if ((propertyMask & TRANSFORM_MASK) != 0) {
-                View v = mView.get();
-                if (v != null) {
-                    v.invalidate(/*false*/);
-                }
-            }
-            ArrayList<NameValuesHolder> valueList = propertyBundle.mNameValuesHolder;
-            if (valueList != null) {
-                int count = valueList.size();
-                for (int i = 0; i < count; ++i) {
-                    NameValuesHolder values = valueList.get(i);
-                    float value = values.mFromValue + fraction * values.mDeltaValue;
-                    //if (values.mNameConstant == ALPHA) {
-                    //    alphaHandled = mView.setAlphaNoInvalidation(value);
-                    //} else {
-                        setValue(values.mNameConstant, value);
-                    //}
-                }
-            }
-            /*if ((propertyMask & TRANSFORM_MASK) != 0) {
-                mView.mTransformationInfo.mMatrixDirty = true;
-                mView.mPrivateFlags |= View.DRAWN; // force another invalidation
-            }*/
-            // invalidate(false) in all cases except if alphaHandled gets set to true
-            // via the call to setAlphaNoInvalidation(), above
-            View v = mView.get();
-            if (v != null) {
-                v.invalidate(/*alphaHandled*/);
-            }
-        }
-    }
 }
@@ -32,6 +32,12 @@ public final class AnimatorProxy extends Animation {
      * @return Proxy to post-3.0 properties.
      */
     public static AnimatorProxy wrap(View view) {
+        // A proxy is only valid while it is the animation of its view, so the view itself is
+        // the cheapest place to find it; the map only sees views whose animation was replaced
+        final Animation animation = view.getAnimation();
+        if (animation instanceof AnimatorProxy && ((AnimatorProxy) animation).mView.get() == view) {
+            return (AnimatorProxy) animation;
+        }
         AnimatorProxy proxy = PROXIES.get(view);
         // This checks if the proxy already exists and whether it still is the animation of the given view
         if (proxy == null || proxy != view.getAnimation()) {
@@ -58,7 +64,24 @@ public final class AnimatorProxy extends Animation {
 
     private final RectF mBefore = new RectF();
     private final RectF mAfter = new RectF();
-    private final Matrix mTempMatrix = new Matrix();
+
+    /**
+     * The transformation of the view, which is only rebuilt after a transform property or the
+     * size of the view has changed; a frame that only changes the alpha, or a redraw of the
+     * view for any other reason, reuses it.
+     */
+    private final Matrix mMatrix = new Matrix();
+    private boolean mMatrixDirty = true;
+    private float mMatrixWidth;
+    private float mMatrixHeight;
+
+    /**
+     * The number of beginUpdate() calls not yet matched by endUpdate(), and what changed in
+     * the view since the outermost of them.
+     */
+    private int mUpdateDepth;
+    private boolean mTransformChanged;
+    private boolean mAlphaChanged;
 
     private AnimatorProxy(View view) {
         setDuration(0); //perform transformation immediately
@@ -73,6 +96,10 @@ public final class AnimatorProxy extends Animation {
     public void setAlpha(float alpha) {
         if (mAlpha != alpha) {
             mAlpha = alpha;
+            if (mUpdateDepth > 0) {
+                mAlphaChanged = true;
+                return;
+            }
             View view = mView.get();
             if (view != null) {
                 view.invalidate();
@@ -226,13 +253,81 @@ public final class AnimatorProxy extends Animation {
         }
     }
 
+    /**
+     * Starts a set of changes to the properties of this proxy, which are applied to the view
+     * by the matching call to {@link #endUpdate()}. Every setter otherwise computes the area
+     * covered by the view before and after its change and invalidates it on its own, so
+     * setting several properties at once, such as on each frame of an animation, is cheaper
+     * within an update. Updates may be nested; only the outermost one invalidates the view.
+     */
+    public void beginUpdate() {
+        if (mUpdateDepth == 0) {
+            mTransformChanged = false;
+            mAlphaChanged = false;
+            prepareForUpdate();
+        }
+        ++mUpdateDepth;
+    }
+
+    /**
+     * Ends a set of changes started by {@link #beginUpdate()}. Once the outermost update ends,
+     * the area covered by the view before and after all of its changes is invalidated once.
+     *
+     * @throws IllegalStateException if there is no update to end.
+     */
+    public void endUpdate() {
+        if (mUpdateDepth == 0) {
+            throw new IllegalStateException("endUpdate() called without beginUpdate()");
+        }
+        if (--mUpdateDepth > 0) {
+            return;
+        }
+        if (mTransformChanged) {
+            // Invalidating the parent around the view also redraws it with its new alpha
+            invalidateAfterUpdate();
+        } else if (mAlphaChanged) {
+            View view = mView.get();
+            if (view != null) {
+                view.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Sets the translation, scale, rotation and alpha of the view in a single update.
+     */
+    public void setTransform(float translationX, float translationY, float scaleX, float scaleY,
+            float rotation, float alpha) {
+        beginUpdate();
+        try {
+            setTranslationX(translationX);
+            setTranslationY(translationY);
+            setScaleX(scaleX);
+            setScaleY(scaleY);
+            setRotation(rotation);
+            setAlpha(alpha);
+        } finally {
+            endUpdate();
+        }
+    }
+
     private void prepareForUpdate() {
+        if (mUpdateDepth > 0) {
+            // The update has already computed the area from before all of its changes
+            return;
+        }
         View view = mView.get();
         if (view != null) {
             computeRect(mBefore, view);
         }
     }
     private void invalidateAfterUpdate() {
+        // Every transform setter ends up here right after changing its property
+        mMatrixDirty = true;
+        if (mUpdateDepth > 0) {
+            mTransformChanged = true;
+            return;
+        }
         View view = mView.get();
         if (view == null || view.getParent() == null) {
             return;
@@ -257,10 +352,7 @@ public final class AnimatorProxy extends Animation {
         // use a rectangle at 0,0 to make sure we don't run into issues with scaling
         r.set(0, 0, w, h);
 
-        final Matrix m = mTempMatrix;
-        m.reset();
-        transformMatrix(m, view);
-        mTempMatrix.mapRect(r);
+        getMatrix(view).mapRect(r);
 
         r.offset(view.getLeft(), view.getTop());
 
@@ -277,17 +369,29 @@ public final class AnimatorProxy extends Animation {
         }
     }
 
-    private void transformMatrix(Matrix m, View view) {
+    private Matrix getMatrix(View view) {
         final float w = view.getWidth();
         final float h = view.getHeight();
+        if (mMatrixDirty || w != mMatrixWidth || h != mMatrixHeight) {
+            transformMatrix(mMatrix, w, h);
+            mMatrixDirty = false;
+            mMatrixWidth = w;
+            mMatrixHeight = h;
+        }
+        return mMatrix;
+    }
+
+    private void transformMatrix(Matrix m, float w, float h) {
         final boolean hasPivot = mHasPivot;
         final float pX = hasPivot ? mPivotX : w / 2f;
         final float pY = hasPivot ? mPivotY : h / 2f;
 
+        // Only rotations around the X or Y axis need the camera; the common transformations
+        // are built directly, and the steps that would not change anything are skipped
         final float rX = mRotationX;
         final float rY = mRotationY;
         final float rZ = mRotationZ;
-        if ((rX != 0) || (rY != 0) || (rZ != 0)) {
+        if ((rX != 0) || (rY != 0)) {
             final Camera camera = mCamera;
             camera.save();
             camera.rotateX(rX);
@@ -297,18 +401,23 @@ public final class AnimatorProxy extends Animation {
             camera.restore();
             m.preTranslate(-pX, -pY);
             m.postTranslate(pX, pY);
+        } else if (rZ != 0) {
+            m.setRotate(rZ, pX, pY);
+        } else {
+            m.reset();
         }
 
         final float sX = mScaleX;
         final float sY = mScaleY;
         if ((sX != 1.0f) || (sY != 1.0f)) {
-            m.postScale(sX, sY);
-            final float sPX = -(pX / w) * ((sX * w) - w);
-            final float sPY = -(pY / h) * ((sY * h) - h);
-            m.postTranslate(sPX, sPY);
+            m.postScale(sX, sY, pX, pY);
         }
 
-        m.postTranslate(mTranslationX, mTranslationY);
+        final float tX = mTranslationX;
+        final float tY = mTranslationY;
+        if ((tX != 0) || (tY != 0)) {
+            m.postTranslate(tX, tY);
+        }
     }
 
     @Override
@@ -316,7 +425,7 @@ public final class AnimatorProxy extends Animation {
         View view = mView.get();
         if (view != null) {
             t.setAlpha(mAlpha);
-            transformMatrix(t.getMatrix(), view);
+            t.getMatrix().set(getMatrix(view));
         }
     }
 }
@@ -24,8 +24,10 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewConfiguration;
 import android.view.ViewTreeObserver;
 import android.widget.AbsListView;
 import android.widget.AdapterView;
@@ -54,6 +56,29 @@ public class ExpandingListView extends ListView {
 
     private int[] mTranslate;
 
+    /* The animation of the cell that is being expanded or collapsed, kept from the tap that
+     * starts it until it is over, so that tapping the cell again runs the same animation
+     * backwards from where it is. The list takes no gestures while it is set.*/
+    private AnimatorSet mCellAnimator;
+
+    private ExpandableListItem mAnimatingItem;
+
+    private boolean mCollapsing = false;
+
+    private boolean mAnimationReversed = false;
+
+    /* Gives up the animation of the cell while it waits for the layout passes that it is
+     * built from, which may never come if the list is detached or its data changes in
+     * between. Null once the animation has started.*/
+    private Runnable mPendingAnimationCancel;
+
+    /* Whether the current gesture began while a cell was animating, and where it began.*/
+    private boolean mBlockingGesture = false;
+
+    private float mGestureDownX;
+
+    private float mGestureDownY;
+
     public ExpandingListView(Context context) {
         super(context);
         init();
@@ -94,6 +119,22 @@ public class ExpandingListView extends ListView {
 
             ExpandableListItem viewObject = (ExpandableListItem)getItemAtPosition(getPositionForView
                     (view));
+            if (mCellAnimator != null) {
+                /* A cell is still animating. Tapping it turns the animation around once it
+                 * has started, while taps on other cells are ignored until it is over.*/
+                if (viewObject == mAnimatingItem && mCellAnimator.isStarted()) {
+                    mAnimationReversed = !mAnimationReversed;
+                    mCellAnimator.reverse();
+                    if (mOnExpandingListener != null) {
+                        if (mAnimationReversed == mCollapsing) {
+                            mOnExpandingListener.onExpand(view);
+                        } else {
+                            mOnExpandingListener.onCollapse(view);
+                        }
+                    }
+                }
+                return;
+            }
             if (!viewObject.isExpanded()) {
                 expandView(view);
                 if(mOnExpandingListener != null){
@@ -119,6 +160,38 @@ public class ExpandingListView extends ListView {
         super.setAdapter(adapter);
     }
 
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        /* While a cell is expanding or collapsing, whole gestures are kept from the list, so
+         * that it neither scrolls nor presses cells under the animation. A tap on the
+         * animating cell is handed on as a click, which reverses the animation.*/
+        final int action = ev.getAction() & MotionEvent.ACTION_MASK;
+        if (action == MotionEvent.ACTION_DOWN) {
+            mBlockingGesture = mCellAnimator != null;
+            mGestureDownX = ev.getX();
+            mGestureDownY = ev.getY();
+        }
+        if (!mBlockingGesture) {
+            return super.dispatchTouchEvent(ev);
+        }
+        if (action == MotionEvent.ACTION_UP) {
+            mBlockingGesture = false;
+            int slop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+            if (mCellAnimator != null && Math.abs(ev.getX() - mGestureDownX) < slop
+                    && Math.abs(ev.getY() - mGestureDownY) < slop) {
+                int position = pointToPosition((int) ev.getX(), (int) ev.getY());
+                if (position != INVALID_POSITION
+                        && getItemAtPosition(position) == mAnimatingItem) {
+                    performItemClick(getChildAt(position - getFirstVisiblePosition()), position,
+                            getItemIdAtPosition(position));
+                }
+            }
+        } else if (action == MotionEvent.ACTION_CANCEL) {
+            mBlockingGesture = false;
+        }
+        return true;
+    }
+
     /**
      * Calculates the top and bottom bound changes of the selected item. These values are
      * also used to move the bounds of the items around the one that is actually being
@@ -256,9 +329,11 @@ public class ExpandingListView extends ListView {
      * 6. The extra text is faded in as its contents become visible throughout the
      *    animation process.
      *
-     * It is important to note that the listview is disabled during the animation
+     * It is important to note that the listview cannot be scrolled during the animation
      * because the scrolling behaviour is unpredictable if the bounds of the items
-     * within the listview are not constant during the scroll.
+     * within the listview are not constant during the scroll. Tapping the expanding cell
+     * plays the animation backwards from where it is, and once it is back at the start the
+     * cell is collapsed again without any further animation.
      */
     private void expandView(final View view) {
         final ExpandableListItem viewObject = (ExpandableListItem)getItemAtPosition(getPositionForView
@@ -268,6 +343,18 @@ public class ExpandingListView extends ListView {
         final int oldTop = view.getTop();
         final int oldBottom = view.getBottom();
 
+        /* Store the scroll position, to return to if the expansion is reversed.*/
+        final int oldFirstPosition = getFirstVisiblePosition();
+        final int oldFirstTop = getChildAt(0).getTop();
+
+        /* The animation is filled in on the second predraw pass, but taken from now on so that
+         * no other tap gets in until it is over.*/
+        final AnimatorSet s = new AnimatorSet();
+        mCellAnimator = s;
+        mAnimatingItem = viewObject;
+        mCollapsing = false;
+        mAnimationReversed = false;
+
         final HashMap<View, int[]> oldCoordinates = new HashMap<View, int[]>();
 
         int childCount = getChildCount();
@@ -289,7 +376,8 @@ public class ExpandingListView extends ListView {
          * means that the final post layout properties for all the items have already been
          * determined, but still have not been rendered onto the screen.*/
         final ViewTreeObserver observer = getViewTreeObserver();
-        observer.addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+        final ViewTreeObserver.OnPreDrawListener preDrawListener =
+                new ViewTreeObserver.OnPreDrawListener() {
 
             @Override
             public boolean onPreDraw() {
@@ -348,6 +436,7 @@ public class ExpandingListView extends ListView {
                 /* Remove the predraw listener so this method does not keep getting called. */
                 mShouldRemoveObserver = false;
                 observer.removeOnPreDrawListener(this);
+                mPendingAnimationCancel = null;
 
                 int yTranslateTop = mTranslate[0];
                 int yTranslateBottom = mTranslate[1];
@@ -395,19 +484,13 @@ public class ExpandingListView extends ListView {
                 animations.add(ObjectAnimator.ofFloat(view.findViewById(R.id.expanding_layout),
                         "alpha", 0, 1));
 
-                /* Disabled the ListView for the duration of the animation.*/
-                setEnabled(false);
-                setClickable(false);
-
                 /* Play all the animations created above together at the same time. */
-                AnimatorSet s = new AnimatorSet();
                 s.playTogether(animations);
                 s.addListener(new AnimatorListenerAdapter() {
                     @Override
                     public void onAnimationEnd(Animator animation) {
-                        viewObject.setExpanded(true);
-                        setEnabled(true);
-                        setClickable(true);
+                        mCellAnimator = null;
+                        mAnimatingItem = null;
                         if (mViewsToDraw.size() > 0) {
                             for (View v : mViewsToDraw) {
                                 ViewCompat.setHasTransientState(v, false);
@@ -415,6 +498,20 @@ public class ExpandingListView extends ListView {
                         }
                         mViewsToDraw.clear();
 
+                        if (mAnimationReversed) {
+                            /* The expansion was played back to its start, so the extra
+                             * content is hidden again and the list scrolled back.*/
+                            mAnimationReversed = false;
+                            expandingLayout.setVisibility(View.GONE);
+                            ViewHelper.setAlpha(expandingLayout, 1);
+                            setSelectionFromTop(oldFirstPosition, oldFirstTop);
+                            if(mOnExpandingListener!=null){
+                                mOnExpandingListener.onCollasped(view);
+                            }
+                            return;
+                        }
+
+                        viewObject.setExpanded(true);
                         if(mOnExpandingListener!=null){
                             mOnExpandingListener.onExpanded(view);
                         }
@@ -423,7 +520,16 @@ public class ExpandingListView extends ListView {
                 s.start();
                 return true;
             }
-        });
+        };
+        observer.addOnPreDrawListener(preDrawListener);
+        mPendingAnimationCancel = new Runnable() {
+            @Override
+            public void run() {
+                getViewTreeObserver().removeOnPreDrawListener(preDrawListener);
+                expandingLayout.setVisibility(View.GONE);
+                endPendingAnimation(oldCoordinates.keySet());
+            }
+        };
     }
 
     /**
@@ -469,6 +575,9 @@ public class ExpandingListView extends ListView {
      *    below the collapsing view are animated upwards.
      * 6. The extra text is faded out as its contents become visible throughout the
      *    animation process.
+     *
+     * As with the expansion, the listview cannot be scrolled during the animation, and
+     * tapping the collapsing cell plays the animation backwards, leaving the cell expanded.
      */
     private void collapseView(final View view) {
         final ExpandableListItem viewObject = (ExpandableListItem)getItemAtPosition
@@ -478,6 +587,17 @@ public class ExpandingListView extends ListView {
         final int oldTop = view.getTop();
         final int oldBottom = view.getBottom();
 
+        /* Store the scroll position, to return to if the collapse is reversed.*/
+        final int oldFirstPosition = getFirstVisiblePosition();
+        final int oldFirstTop = getChildAt(0).getTop();
+
+        /* As for expandView, the animation is taken before the layout passes.*/
+        final AnimatorSet s = new AnimatorSet();
+        mCellAnimator = s;
+        mAnimatingItem = viewObject;
+        mCollapsing = true;
+        mAnimationReversed = false;
+
         int childCount = getChildCount();
         final HashMap<View, int[]> oldCoordinates = new HashMap<View, int[]>();
         
@@ -493,7 +613,8 @@ public class ExpandingListView extends ListView {
 
         /* Add an onPreDraw listener. */
         final ViewTreeObserver observer = getViewTreeObserver();
-        observer.addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+        final ViewTreeObserver.OnPreDrawListener preDrawListener =
+                new ViewTreeObserver.OnPreDrawListener() {
 
             @Override
             public boolean onPreDraw() {
@@ -546,6 +667,7 @@ public class ExpandingListView extends ListView {
 
                 mShouldRemoveObserver = false;
                 observer.removeOnPreDrawListener(this);
+                mPendingAnimationCancel = null;
 
                 int yTranslateTop = mTranslate[0];
                 int yTranslateBottom = mTranslate[1];
@@ -599,22 +721,29 @@ public class ExpandingListView extends ListView {
                 /* Adds an animation for fading out the extra content. */
                 animations.add(ObjectAnimator.ofFloat(expandingLayout, "alpha", 1, 0));
 
-                /* Disabled the ListView for the duration of the animation.*/
-                setEnabled(false);
-                setClickable(false);
-
                 /* Play all the animations created above together at the same time. */
-                AnimatorSet s = new AnimatorSet();
                 s.playTogether(animations);
                 s.addListener(new AnimatorListenerAdapter() {
                     @Override
                     public void onAnimationEnd(Animator animation) {
-                        expandingLayout.setVisibility(View.GONE);
+                        mCellAnimator = null;
+                        mAnimatingItem = null;
                         view.setLayoutParams(new AbsListView.LayoutParams(AbsListView
                                 .LayoutParams.MATCH_PARENT, AbsListView.LayoutParams.WRAP_CONTENT));
+
+                        if (mAnimationReversed) {
+                            /* The collapse was played back to its start, so the cell keeps
+                             * its extra content and the list is scrolled back.*/
+                            mAnimationReversed = false;
+                            setSelectionFromTop(oldFirstPosition, oldFirstTop);
+                            if(mOnExpandingListener!=null){
+                                mOnExpandingListener.onExpanded(view);
+                            }
+                            return;
+                        }
+
+                        expandingLayout.setVisibility(View.GONE);
                         viewObject.setExpanded(false);
-                        setEnabled(true);
-                        setClickable(true);
                         /* Note that alpha must be set back to 1 in case this view is reused
                          * by a cell that was expanded, but not yet collapsed, so its state
                          * should persist in an expanded state with the extra content visible.*/
@@ -629,7 +758,57 @@ public class ExpandingListView extends ListView {
 
                 return true;
             }
-        });
+        };
+        observer.addOnPreDrawListener(preDrawListener);
+        mPendingAnimationCancel = new Runnable() {
+            @Override
+            public void run() {
+                getViewTreeObserver().removeOnPreDrawListener(preDrawListener);
+                view.setLayoutParams(new AbsListView.LayoutParams(AbsListView
+                        .LayoutParams.MATCH_PARENT, AbsListView.LayoutParams.WRAP_CONTENT));
+                endPendingAnimation(oldCoordinates.keySet());
+            }
+        };
+    }
+
+    /**
+     * Gives up the animation of a cell that has been tapped but not yet started, so that the
+     * list takes gestures again.
+     */
+    private void cancelPendingAnimation() {
+        if (mPendingAnimationCancel != null) {
+            Runnable cancel = mPendingAnimationCancel;
+            mPendingAnimationCancel = null;
+            cancel.run();
+        }
+    }
+
+    /**
+     * Clears the state that a cell animation takes from the tap that starts it, for one that
+     * is given up before it has started.
+     * @param views the cells that were kept from being recycled for the animation
+     */
+    private void endPendingAnimation(Iterable<View> views) {
+        for (View v : views) {
+            ViewCompat.setHasTransientState(v, false);
+        }
+        mShouldRemoveObserver = false;
+        mCellAnimator = null;
+        mAnimatingItem = null;
+        mAnimationReversed = false;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        cancelPendingAnimation();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void handleDataChanged() {
+        super.handleDataChanged();
+        /* The cells measured before the tap may no longer show the same items.*/
+        cancelPendingAnimation();
     }
 
     /**
@@ -645,12 +824,14 @@ public class ExpandingListView extends ListView {
         int endTop = (int)(top + translateTop);
         int endBottom = (int)(bottom + translateBottom);
 
-        PropertyValuesHolder translationTop = PropertyValuesHolder.ofInt("top", top, endTop);
-        PropertyValuesHolder translationBottom = PropertyValuesHolder.ofInt("bottom", bottom,
-                endBottom);
-        
+        PropertyValuesHolder translation = PropertyValuesHolder.ofVerticalBounds(top, bottom,
+                endTop, endBottom);
 
-        return ObjectAnimator.ofPropertyValuesHolder(view, translationTop, translationBottom);
+        ObjectAnimator animator = ObjectAnimator.ofPropertyValuesHolder(view, translation);
+        // Rows that leave the window, e.g. when the activity goes away, stop where they are;
+        // jumping to their end bounds would hand the recycler a row laid out for another spot
+        animator.setDetachBehavior(ObjectAnimator.DETACH_CANCEL);
+        return animator;
     }
     
     /**